@@ -0,0 +1,85 @@
+package lite_regex.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import lite_regex.CharClasses;
+import lite_regex.DFA;
+import lite_regex.DFABuilder;
+import lite_regex.NFA;
+import lite_regex.NFABuilder;
+import lite_regex.RegexEngine;
+import lite_regex.RegexNode;
+import lite_regex.RegexToken;
+import lite_regex.lexer;
+import lite_regex.parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Each stage of the compile pipeline on its own, the whole RegexEngine
+// constructor, and Pattern.compile for comparison. Every stage starts from
+// the previous stage's output, prepared once in setup.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompileBenchmark {
+    @Param({"EMAIL", "LOG_LINE", "KEYWORDS", "PATHOLOGICAL"})
+    public String patternName;
+
+    private String pattern;
+    private List<RegexToken> tokens;
+    private RegexNode ast;
+    private NFA nfa;
+
+    @Setup
+    public void setUp() {
+        pattern = Corpora.pattern(patternName);
+        tokens = new lexer(pattern).tokenize();
+        ast = new parser(tokens, pattern).parse();
+        nfa = new NFABuilder(CharClasses.fromAst(ast)).build(ast);
+    }
+
+    @Benchmark
+    public List<RegexToken> lex() {
+        return new lexer(pattern).tokenize();
+    }
+
+    @Benchmark
+    public RegexNode parse() {
+        return new parser(tokens, pattern).parse();
+    }
+
+    @Benchmark
+    public NFA buildNfa() {
+        return new NFABuilder(CharClasses.fromAst(ast)).build(ast);
+    }
+
+    @Benchmark
+    public DFA buildDfa() {
+        return new DFABuilder().build(nfa);
+    }
+
+    // Lexing through dense DFA minimization, everything a new engine does
+    @Benchmark
+    public RegexEngine engine() {
+        return new RegexEngine(pattern);
+    }
+
+    @Benchmark
+    public Pattern javaRegex() {
+        return Pattern.compile(pattern);
+    }
+}
@@ -0,0 +1,82 @@
+package lite_regex.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Inputs and patterns shared by the benchmarks. Everything is generated from
+// a fixed seed so runs are comparable. Each pattern is written in the syntax
+// both this engine and java.util.regex accept, with the same meaning.
+final class Corpora {
+    static final String EMAIL = "\\w+(\\.\\w+)*@\\w+(\\.\\w+)+";
+    static final String LOG_LINE = ".*(ERROR|WARN) \\[\\w+\\] .*timeout.*";
+    static final String LOG_SEARCH = "(ERROR|WARN) \\[\\w+\\] [a-z ]*timeout";
+    static final String KEYWORDS = "timeout|refused|denied|overflow|corrupt";
+    // Exponential for a naive backtracking engine, linear for an automaton.
+    // java.util.regex memoizes this simple loop; it can't for the nested .*
+    // of the second, which is polynomial of degree 10 there.
+    static final String PATHOLOGICAL = "(a|a)*b";
+    static final String NESTED_WILDCARD = "(.*a){10}b";
+
+    private static final String[] NAMES = {"john", "mary", "li", "ahmed", "olga", "sam", "priya", "tom"};
+    private static final String[] DOMAINS = {"example", "mail", "corp", "uni"};
+    private static final String[] TLDS = {"com", "org", "net", "co.uk"};
+    private static final String[] LEVELS = {"DEBUG", "INFO", "INFO", "INFO", "WARN", "ERROR"};
+    private static final String[] COMPONENTS = {"http", "db", "cache", "worker3", "scheduler"};
+    private static final String[] MESSAGES = {
+        "request served in 12ms", "connection refused by peer", "cache miss for key user_42",
+        "query timeout after 30s", "retrying job 7 of 9", "upstream read timeout", "disk usage at 71 percent"
+    };
+
+    private Corpora() {
+    }
+
+    static String pattern(String name) {
+        switch (name) {
+            case "EMAIL": return EMAIL;
+            case "LOG_LINE": return LOG_LINE;
+            case "LOG_SEARCH": return LOG_SEARCH;
+            case "KEYWORDS": return KEYWORDS;
+            case "PATHOLOGICAL": return PATHOLOGICAL;
+            case "NESTED_WILDCARD": return NESTED_WILDCARD;
+            default: throw new IllegalArgumentException("Unknown pattern " + name);
+        }
+    }
+
+    // Addresses, about a quarter of them malformed in some way
+    static List<String> emails(int count) {
+        Random random = new Random(1);
+        List<String> emails = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String local = pick(random, NAMES) + (random.nextBoolean() ? "." + pick(random, NAMES) : "");
+            String address = local + "@" + pick(random, DOMAINS) + "." + pick(random, TLDS);
+            switch (random.nextInt(12)) {
+                case 0: address = address.replace("@", " at "); break;
+                case 1: address = address.substring(0, address.lastIndexOf('.')); break;
+                case 2: address = address.replace(".", ".."); break;
+                default: break;
+            }
+            emails.add(address);
+        }
+        return emails;
+    }
+
+    static List<String> logLines(int count) {
+        Random random = new Random(2);
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lines.add(String.format("2024-03-%02d %02d:%02d:%02d %s [%s] %s",
+                    1 + random.nextInt(28), random.nextInt(24), random.nextInt(60), random.nextInt(60),
+                    pick(random, LEVELS), pick(random, COMPONENTS), pick(random, MESSAGES)));
+        }
+        return lines;
+    }
+
+    static List<String> inputsFor(String name, int count) {
+        return name.equals("EMAIL") ? emails(count) : logLines(count);
+    }
+
+    private static String pick(Random random, String[] choices) {
+        return choices[random.nextInt(choices.length)];
+    }
+}
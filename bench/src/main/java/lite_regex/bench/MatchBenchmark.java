@@ -0,0 +1,110 @@
+package lite_regex.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import lite_regex.CharClasses;
+import lite_regex.DFA;
+import lite_regex.DFABuilder;
+import lite_regex.NFA;
+import lite_regex.NFABuilder;
+import lite_regex.NFAMatcher;
+import lite_regex.RegexEngine;
+import lite_regex.RegexNode;
+import lite_regex.lexer;
+import lite_regex.parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Whole-input matching of short strings, as done for validation: the raw
+// Pike VM, the map-based DFA from DFABuilder, RegexEngine.matches (which
+// picks the fastest path itself), its batch form, and java.util.regex.
+// Scores are per input.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MatchBenchmark {
+    private static final int INPUTS = 1000;
+
+    @Param({"EMAIL", "LOG_LINE"})
+    public String patternName;
+
+    private List<String> inputs;
+    private NFAMatcher nfaMatcher;
+    private DFA dfa;
+    private RegexEngine engine;
+    private Matcher javaMatcher;
+
+    @Setup
+    public void setUp() {
+        String pattern = Corpora.pattern(patternName);
+        inputs = Corpora.inputsFor(patternName, INPUTS);
+        RegexNode ast = new parser(new lexer(pattern).tokenize(), pattern).parse();
+        NFA nfa = new NFABuilder(CharClasses.fromAst(ast)).build(ast);
+        nfaMatcher = new NFAMatcher(nfa);
+        dfa = new DFABuilder().build(nfa);
+        engine = new RegexEngine(pattern);
+        javaMatcher = Pattern.compile(pattern).matcher("");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INPUTS)
+    public int nfaMatcher() {
+        int matched = 0;
+        for (String input : inputs) {
+            if (nfaMatcher.matches(input)) matched++;
+        }
+        return matched;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INPUTS)
+    public int dfa() {
+        int matched = 0;
+        for (String input : inputs) {
+            if (dfa.matches(input)) matched++;
+        }
+        return matched;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INPUTS)
+    public int engine() {
+        int matched = 0;
+        for (String input : inputs) {
+            if (engine.matches(input)) matched++;
+        }
+        return matched;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INPUTS)
+    public int engineBatch() {
+        return engine.matchAll(inputs).cardinality();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INPUTS)
+    public int javaRegex() {
+        int matched = 0;
+        for (String input : inputs) {
+            if (javaMatcher.reset(input).matches()) matched++;
+        }
+        return matched;
+    }
+}
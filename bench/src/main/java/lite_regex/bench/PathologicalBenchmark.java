@@ -0,0 +1,66 @@
+package lite_regex.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import lite_regex.RegexEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Backtracking traps against a run of a's with no b: a backtracking matcher
+// tries many ways of splitting the run between the pattern's pieces before
+// failing, while the automata stay linear in the input length.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PathologicalBenchmark {
+    @Param({"PATHOLOGICAL", "NESTED_WILDCARD"})
+    public String patternName;
+
+    @Param({"12", "18", "24"})
+    public int length;
+
+    private String input;
+    private RegexEngine engine;
+    private Pattern javaPattern;
+
+    @Setup
+    public void setUp() {
+        input = "a".repeat(length);
+        String pattern = Corpora.pattern(patternName);
+        engine = new RegexEngine(pattern);
+        javaPattern = Pattern.compile(pattern);
+    }
+
+    @Benchmark
+    public boolean engineMatches() {
+        return engine.matches(input);
+    }
+
+    @Benchmark
+    public boolean engineFind() {
+        return engine.find(input) != null;
+    }
+
+    @Benchmark
+    public boolean javaRegexMatches() {
+        return javaPattern.matcher(input).matches();
+    }
+
+    @Benchmark
+    public boolean javaRegexFind() {
+        return javaPattern.matcher(input).find();
+    }
+}
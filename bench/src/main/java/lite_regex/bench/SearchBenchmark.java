@@ -0,0 +1,70 @@
+package lite_regex.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import lite_regex.RegexEngine;
+import lite_regex.RegexMatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Unanchored search for every match in a block of log text, counting them.
+// The engine reports leftmost-longest matches and java.util.regex
+// leftmost-first ones; for these patterns the two agree.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchBenchmark {
+    @Param({"LOG_SEARCH", "KEYWORDS"})
+    public String patternName;
+
+    @Param({"10000"})
+    public int lines;
+
+    private String text;
+    private RegexEngine engine;
+    private Pattern javaPattern;
+
+    @Setup
+    public void setUp() {
+        String pattern = Corpora.pattern(patternName);
+        text = String.join("\n", Corpora.logLines(lines));
+        engine = new RegexEngine(pattern);
+        javaPattern = Pattern.compile(pattern);
+    }
+
+    @Benchmark
+    public int engine() {
+        int count = 0;
+        int from = 0;
+        RegexMatch match;
+        while (from <= text.length() && (match = engine.find(text, from)) != null) {
+            count++;
+            from = match.end() > match.start() ? match.end() : match.end() + 1;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int javaRegex() {
+        int count = 0;
+        Matcher matcher = javaPattern.matcher(text);
+        while (matcher.find()) {
+            count++;
+        }
+        return count;
+    }
+}
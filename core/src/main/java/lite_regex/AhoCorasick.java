@@ -0,0 +1,342 @@
+package lite_regex;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+// Aho-Corasick automaton for patterns that are nothing but an alternation of
+// literals, like foo|bar|baz. The NFA for these nests every branch under a
+// tree of epsilon transitions, so each step touches every branch; here a step
+// is one trie transition (plus failure links), whatever the branch count.
+//
+// The trie is packed into a double array: the child of state s on char code c
+// is base[s] + c, valid when check[base[s] + c] == s. Chars are mapped to
+// dense codes 1..k first (0 means the char occurs in no literal).
+public class AhoCorasick {
+    private static final int ROOT = 0;
+    private static final int FREE = -1;
+
+    private final char[] alphabet;
+    private final int[] asciiCodes = new int[128];
+    private int[] base;
+    private int[] check;
+    private int[] fail;
+    // Length of the literal ending at the state, or 0
+    private int[] literalLength;
+    // Longest literal that is a suffix of the state's string, or 0
+    private int[] longestOutput;
+    private final int literalCount;
+    private final int maxLength;
+    private int stateCount;
+
+    private AhoCorasick(List<String> literals) {
+        TreeSet<Character> chars = new TreeSet<>();
+        int longest = 0;
+        for (String literal : literals) {
+            for (int i = 0; i < literal.length(); i++) {
+                chars.add(literal.charAt(i));
+            }
+            longest = Math.max(longest, literal.length());
+        }
+        this.alphabet = new char[chars.size()];
+        int i = 0;
+        for (char c : chars) {
+            alphabet[i++] = c;
+        }
+        for (char c = 0; c < 128; c++) {
+            asciiCodes[c] = lookup(c);
+        }
+        this.literalCount = literals.size();
+        this.maxLength = longest;
+        build(literals);
+    }
+
+    private AhoCorasick(char[] alphabet, int[] base, int[] check, int[] fail, int[] literalLength,
+                        int[] longestOutput, int literalCount, int maxLength, int stateCount) {
+        this.alphabet = alphabet;
+        for (char c = 0; c < 128; c++) {
+            asciiCodes[c] = lookup(c);
+        }
+        this.base = base;
+        this.check = check;
+        this.fail = fail;
+        this.literalLength = literalLength;
+        this.longestOutput = longestOutput;
+        this.literalCount = literalCount;
+        this.maxLength = maxLength;
+        this.stateCount = stateCount;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(literalCount);
+        out.writeInt(maxLength);
+        out.writeInt(stateCount);
+        PatternArchive.writeChars(out, alphabet);
+        PatternArchive.writeInts(out, base);
+        PatternArchive.writeInts(out, check);
+        PatternArchive.writeInts(out, fail);
+        PatternArchive.writeInts(out, literalLength);
+        PatternArchive.writeInts(out, longestOutput);
+    }
+
+    static AhoCorasick read(ByteBuffer in) {
+        int literalCount = in.getInt();
+        int maxLength = in.getInt();
+        int stateCount = in.getInt();
+        char[] alphabet = PatternArchive.readChars(in);
+        int[] base = PatternArchive.readInts(in);
+        int[] check = PatternArchive.readInts(in);
+        int[] fail = PatternArchive.readInts(in);
+        int[] literalLength = PatternArchive.readInts(in);
+        int[] longestOutput = PatternArchive.readInts(in);
+        return new AhoCorasick(alphabet, base, check, fail, literalLength, longestOutput,
+                literalCount, maxLength, stateCount);
+    }
+
+    // An automaton for ast if it is an alternation of two or more plain
+    // literals, otherwise null
+    public static AhoCorasick fromAst(RegexNode ast) {
+        while (ast instanceof GroupNode) {
+            ast = ((GroupNode) ast).getChild();
+        }
+        if (!(ast instanceof AlternationNode)) {
+            return null;
+        }
+        List<String> literals = new ArrayList<>();
+        if (!collectLiterals(ast, literals)) {
+            return null;
+        }
+        return new AhoCorasick(literals);
+    }
+
+    // True if the whole text is one of the literals
+    public boolean matches(CharSequence text) {
+        if (text.length() > maxLength) {
+            return false;
+        }
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = child(state, codeOf(text.charAt(i)));
+            if (state < 0) {
+                return false;
+            }
+        }
+        return literalLength[state] > 0;
+    }
+
+    // Leftmost-longest occurrence of any literal at or after from. The scan
+    // stops at the first position where some literal ends; a match starting
+    // further left must end later, and can start at most maxLength chars
+    // before that, so the few possible starts are then tried directly.
+    public RegexMatch find(CharSequence text, int from) {
+        return find(text, from, Integer.MAX_VALUE);
+    }
+
+    // Same, for literals starting before startLimit. No such literal can end
+    // more than maxLength chars past it, so the scan stops there.
+    public RegexMatch find(CharSequence text, int from, int startLimit) {
+        int scanEnd = (int) Math.min(text.length(), (long) startLimit - 1 + maxLength);
+        int state = ROOT;
+        for (int i = from; i < scanEnd; i++) {
+            int code = codeOf(text.charAt(i));
+            int next;
+            while ((next = child(state, code)) < 0 && state != ROOT) {
+                state = fail[state];
+            }
+            state = next < 0 ? ROOT : next;
+
+            if (longestOutput[state] > 0) {
+                int end = i + 1;
+                int firstStart = end - longestOutput[state];
+                for (int start = Math.max(from, end - maxLength); start < firstStart && start < startLimit; start++) {
+                    int length = longestAt(text, start);
+                    if (length > 0) {
+                        return new RegexMatch(text, start, start + length);
+                    }
+                }
+                if (firstStart >= startLimit) {
+                    return null;
+                }
+                return new RegexMatch(text, firstStart, firstStart + longestAt(text, firstStart));
+            }
+        }
+        return null;
+    }
+
+    public int getLiteralCount() {
+        return literalCount;
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    // Length of the longest literal starting at start, or 0 if none does
+    private int longestAt(CharSequence text, int start) {
+        int state = ROOT;
+        int longest = 0;
+        for (int i = start; i < text.length(); i++) {
+            state = child(state, codeOf(text.charAt(i)));
+            if (state < 0) {
+                break;
+            }
+            if (literalLength[state] > 0) {
+                longest = literalLength[state];
+            }
+        }
+        return longest;
+    }
+
+    private int child(int state, int code) {
+        if (code == 0) {
+            return -1;
+        }
+        int target = base[state] + code;
+        return target < check.length && check[target] == state ? target : -1;
+    }
+
+    private int codeOf(char c) {
+        return c < 128 ? asciiCodes[c] : lookup(c);
+    }
+
+    private int lookup(char c) {
+        int index = Arrays.binarySearch(alphabet, c);
+        return index >= 0 ? index + 1 : 0;
+    }
+
+    private static boolean collectLiterals(RegexNode node, List<String> literals) {
+        if (node instanceof GroupNode) {
+            return collectLiterals(((GroupNode) node).getChild(), literals);
+        }
+        if (node instanceof AlternationNode) {
+            return collectLiterals(((AlternationNode) node).getLeft(), literals)
+                    && collectLiterals(((AlternationNode) node).getRight(), literals);
+        }
+        StringBuilder literal = new StringBuilder();
+        if (!appendLiteral(node, literal)) {
+            return false;
+        }
+        literals.add(literal.toString());
+        return true;
+    }
+
+    private static boolean appendLiteral(RegexNode node, StringBuilder literal) {
+        if (node instanceof CharacterNode) {
+            literal.append(((CharacterNode) node).getCharacter());
+            return true;
+        } else if (node instanceof ConcatenationNode) {
+            return appendLiteral(((ConcatenationNode) node).getLeft(), literal)
+                    && appendLiteral(((ConcatenationNode) node).getRight(), literal);
+        } else if (node instanceof GroupNode) {
+            return appendLiteral(((GroupNode) node).getChild(), literal);
+        }
+        return false;
+    }
+
+    // Trie node used only while building the double array
+    private static final class TrieNode {
+        final TreeMap<Integer, TrieNode> children = new TreeMap<>();
+        int length;
+        int index;
+    }
+
+    private void build(List<String> literals) {
+        TrieNode root = new TrieNode();
+        for (String literal : literals) {
+            TrieNode node = root;
+            for (int i = 0; i < literal.length(); i++) {
+                node = node.children.computeIfAbsent(codeOf(literal.charAt(i)), code -> new TrieNode());
+            }
+            node.length = literal.length();
+        }
+
+        int capacity = Math.max(16, alphabet.length + 2);
+        base = new int[capacity];
+        check = new int[capacity];
+        Arrays.fill(check, FREE);
+        literalLength = new int[capacity];
+        check[ROOT] = ROOT;
+        literalLength[ROOT] = root.length;
+        stateCount = 1;
+
+        // Place children breadth first, each node's at the lowest base where
+        // all of their slots are free
+        int firstFree = 1;
+        ArrayDeque<TrieNode> queue = new ArrayDeque<>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            TrieNode node = queue.poll();
+            if (node.children.isEmpty()) {
+                continue;
+            }
+            while (firstFree < check.length && check[firstFree] != FREE) {
+                firstFree++;
+            }
+            int b = Math.max(1, firstFree - node.children.firstKey());
+            while (!fits(b, node.children.keySet())) {
+                b++;
+            }
+            base[node.index] = b;
+            for (Map.Entry<Integer, TrieNode> entry : node.children.entrySet()) {
+                TrieNode childNode = entry.getValue();
+                childNode.index = b + entry.getKey();
+                check[childNode.index] = node.index;
+                literalLength[childNode.index] = childNode.length;
+                stateCount++;
+                queue.add(childNode);
+            }
+        }
+
+        // Failure links, again breadth first so a state's link is set before
+        // its children need it
+        fail = new int[check.length];
+        longestOutput = new int[check.length];
+        longestOutput[ROOT] = literalLength[ROOT];
+        ArrayDeque<Integer> states = new ArrayDeque<>();
+        states.add(ROOT);
+        while (!states.isEmpty()) {
+            int state = states.poll();
+            for (int code = 1; code <= alphabet.length; code++) {
+                int target = child(state, code);
+                if (target < 0) {
+                    continue;
+                }
+                int link = ROOT;
+                if (state != ROOT) {
+                    int f = fail[state];
+                    while (child(f, code) < 0 && f != ROOT) {
+                        f = fail[f];
+                    }
+                    link = Math.max(child(f, code), ROOT);
+                }
+                fail[target] = link;
+                longestOutput[target] = literalLength[target] > 0
+                        ? literalLength[target] : longestOutput[link];
+                states.add(target);
+            }
+        }
+    }
+
+    private boolean fits(int b, Set<Integer> codes) {
+        for (int code : codes) {
+            int slot = b + code;
+            if (slot >= check.length) {
+                grow(slot + 1);
+            }
+            if (check[slot] != FREE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, check.length * 2);
+        int oldLength = check.length;
+        base = Arrays.copyOf(base, capacity);
+        check = Arrays.copyOf(check, capacity);
+        literalLength = Arrays.copyOf(literalLength, capacity);
+        Arrays.fill(check, oldLength, capacity, FREE);
+    }
+}
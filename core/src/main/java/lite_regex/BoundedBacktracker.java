@@ -0,0 +1,113 @@
+package lite_regex;
+
+import java.util.Arrays;
+
+// Depth-first search through a CaptureProgram in priority order, so the first
+// path to reach MATCH is the one the Pike VM would pick. A bitset of visited
+// (config, position) pairs keeps it from exploring any pair twice, which
+// bounds the work by config count * span length; the bitset grows with the
+// span, so this is only used for short ones (see fits). Not thread-safe: use
+// one backtracker per thread.
+final class BoundedBacktracker {
+    // 32KB of visited bits
+    private static final int MAX_VISITED_BITS = 256 * 1024;
+
+    private static final int EXPLORE = 0;
+    private static final int RESTORE = 1;
+
+    private long[] visited = new long[0];
+    // Frames of four ints: EXPLORE, pc, position, loop count or RESTORE,
+    // slot, old value, unused
+    private int[] stack = new int[64];
+
+    static boolean fits(CaptureProgram program, int length) {
+        return (long) program.getConfigCount() * (length + 1) <= MAX_VISITED_BITS;
+    }
+
+    // Slots of the match spanning exactly [start, end), or null if there is none
+    int[] capture(CaptureProgram program, CharSequence text, int start, int end) {
+        CharClasses classes = program.getCharClasses();
+        int width = end - start + 1;
+        int words = (int) (((long) program.getConfigCount() * width + 63) >>> 6);
+        if (visited.length < words) {
+            visited = new long[words];
+        } else {
+            Arrays.fill(visited, 0, words, 0L);
+        }
+        int[] slots = new int[program.getSlotCount()];
+        Arrays.fill(slots, -1);
+
+        int top = push(0, EXPLORE, 0, start, 0);
+        while (top > 0) {
+            top -= 4;
+            if (stack[top] == RESTORE) {
+                slots[stack[top + 1]] = stack[top + 2];
+                continue;
+            }
+            int pc = stack[top + 1];
+            int pos = stack[top + 2];
+            int count = stack[top + 3];
+            while (true) {
+                long bit = (long) program.config(pc, count) * width + pos - start;
+                long mask = 1L << bit;
+                if ((visited[(int) (bit >>> 6)] & mask) != 0) {
+                    break;
+                }
+                visited[(int) (bit >>> 6)] |= mask;
+
+                int op = program.op(pc);
+                if (op == CaptureProgram.CHAR) {
+                    if (pos == end || !program.consumes(pc, classes.classOf(text.charAt(pos)))) {
+                        break;
+                    }
+                    pc++;
+                    pos++;
+                } else if (op == CaptureProgram.SPLIT) {
+                    top = push(top, EXPLORE, program.alternate(pc), pos, count);
+                    pc = program.arg(pc);
+                } else if (op == CaptureProgram.JUMP) {
+                    pc = program.arg(pc);
+                } else if (op == CaptureProgram.SAVE) {
+                    int slot = program.arg(pc);
+                    top = push(top, RESTORE, slot, slots[slot], 0);
+                    slots[slot] = pos;
+                    pc++;
+                } else if (op == CaptureProgram.LOOP) {
+                    int choices = program.loopChoices(pc, count);
+                    if (choices == CaptureProgram.EXIT) {
+                        pc = program.alternate(pc);
+                        count = 0;
+                    } else {
+                        if ((choices & CaptureProgram.EXIT) != 0) {
+                            top = push(top, EXPLORE, program.alternate(pc), pos, 0);
+                        }
+                        count = program.bodyCount(pc, count);
+                        pc++;
+                    }
+                } else if (op == CaptureProgram.NEXT) {
+                    count = program.nextCount(pc, count);
+                    pc = program.arg(pc);
+                } else {
+                    if (pos == end) {
+                        slots[0] = start;
+                        slots[1] = end;
+                        return slots;
+                    }
+                    break;
+                }
+            }
+        }
+        return null;
+    }
+
+    private int push(int top, int kind, int a, int b, int c) {
+        if (top + 4 > stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[top] = kind;
+        stack[top + 1] = a;
+        stack[top + 2] = b;
+        stack[top + 3] = c;
+        return top + 4;
+    }
+}
@@ -0,0 +1,42 @@
+package lite_regex;
+
+import java.nio.charset.StandardCharsets;
+
+// Read-only char view of a range of a byte[] holding UTF-8 text, one char per
+// byte, with toString decoding as in ByteCharSequence. The range can be moved
+// with reset(), so one view per thread serves every byte[] the engine is handed.
+final class ByteArraySequence implements CharSequence {
+    private byte[] array;
+    private int offset;
+    private int length;
+
+    ByteArraySequence(byte[] array, int offset, int length) {
+        reset(array, offset, length);
+    }
+
+    void reset(byte[] array, int offset, int length) {
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (array[offset + index] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new ByteArraySequence(array, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(array, offset, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,61 @@
+package lite_regex;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Read-only char view of a range of a ByteBuffer holding UTF-8 text, one
+// char per byte, for the byte automata of RegexEngine.bytes(). Lets the
+// engine run straight over a mapped file without decoding it; the range can
+// be moved with reset() so one view serves every line. charAt, length and
+// indexes are in bytes, but toString decodes the bytes as UTF-8, so it gives
+// the text itself and may be shorter than length().
+final class ByteCharSequence implements CharSequence {
+    private ByteBuffer buffer;
+    private int offset;
+    private int length;
+
+    ByteCharSequence(ByteBuffer buffer) {
+        this(buffer, 0, buffer.limit());
+    }
+
+    ByteCharSequence(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        reset(offset, length);
+    }
+
+    void reset(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        reset(offset, length);
+    }
+
+    void reset(int offset, int length) {
+        this.offset = offset;
+        this.length = length;
+    }
+
+    int offset() {
+        return offset;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (buffer.get(offset + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new ByteCharSequence(buffer, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,389 @@
+package lite_regex;
+
+import java.util.Arrays;
+import java.util.List;
+
+// The pattern compiled for submatch extraction: a list of instructions run by
+// OnePassDFA, BoundedBacktracker and CaptureVM. Unlike the NFA it keeps the
+// order in which alternatives are tried: SPLIT prefers its first target, so
+// the left side of '|' comes first and greedy operators try one more
+// iteration before leaving. SAVE records the current position in a slot;
+// group k starts at slot 2k and ends at slot 2k + 1.
+//
+// {n,m} is copied n + m times unless the copies would be large, in which case
+// it becomes a loop with a counter, as in CountedNFA: LOOP decides from the
+// count whether the body must, may or must not run again, and NEXT after the
+// body counts the iteration and jumps back. Loops are never nested, so a
+// thread is an instruction plus one count, which is 0 outside loops; the
+// matchers tell threads apart by config(pc, count).
+final class CaptureProgram {
+    static final int CHAR = 0;
+    static final int SPLIT = 1;
+    static final int JUMP = 2;
+    static final int SAVE = 3;
+    static final int MATCH = 4;
+    static final int LOOP = 5;
+    static final int NEXT = 6;
+
+    // What loopChoices allows; both means the body is preferred
+    static final int BODY = 1;
+    static final int EXIT = 2;
+
+    // Repetitions whose copies would take more instructions than this loop
+    private static final int LOOP_THRESHOLD = 4096;
+    // Bounds the configs, which the matchers size their thread sets by
+    private static final int MAX_CONFIGS = 1 << 21;
+
+    private final CharClasses classes;
+    private final int groupCount;
+    private final int[] ops;
+    // Jump target, preferred split target, slot, loop index or loop
+    // instruction, depending on the op
+    private final int[] args;
+    // The other split target, or the instruction after a loop
+    private final int[] alternates;
+    // Inclusive [lo, hi] class id pairs a CHAR instruction consumes
+    private final int[][] ranges;
+    // Iteration bounds of each loop; a max of -1 means unbounded
+    private final int[] loopMins;
+    private final int[] loopMaxes;
+    // The configs of instruction pc are configStart[pc] + count, one per
+    // count it can hold: a single one outside loops
+    private final int[] configStart;
+
+    private CaptureProgram(CharClasses classes, int groupCount, Builder builder) {
+        this.classes = classes;
+        this.groupCount = groupCount;
+        this.ops = Arrays.copyOf(builder.ops, builder.size);
+        this.args = Arrays.copyOf(builder.args, builder.size);
+        this.alternates = Arrays.copyOf(builder.alternates, builder.size);
+        this.ranges = Arrays.copyOf(builder.ranges, builder.size);
+        this.loopMins = Arrays.copyOf(builder.loopMins, builder.loops);
+        this.loopMaxes = Arrays.copyOf(builder.loopMaxes, builder.loops);
+
+        // A loop's counts run up to its max; an unbounded loop's run to its
+        // min + 1, since iterations past the min all look alike
+        int[] widths = new int[ops.length];
+        Arrays.fill(widths, 1);
+        for (int pc = 0; pc < ops.length; pc++) {
+            if (ops[pc] == NEXT) {
+                int loop = args[pc];
+                int index = args[loop];
+                int counts = loopMaxes[index] >= 0 ? loopMaxes[index] + 1 : loopMins[index] + 2;
+                Arrays.fill(widths, loop, pc + 1, counts);
+            }
+        }
+        this.configStart = new int[ops.length + 1];
+        for (int pc = 0; pc < ops.length; pc++) {
+            configStart[pc + 1] = configStart[pc] + widths[pc];
+        }
+    }
+
+    // Parses the pattern again, so engines only pay for this once captures
+    // are asked for (and engines loaded from a PatternArchive need no AST)
+    static CaptureProgram compile(String pattern, CharClasses classes, boolean utf8) {
+        List<RegexToken> tokens = new lexer(pattern).tokenize();
+        parser parser = new parser(tokens, pattern);
+        RegexNode ast = PatternParts.lower(parser.parse(), utf8);
+        checkSize(ast, pattern);
+        Builder builder = new Builder(classes);
+        builder.emit(ast);
+        builder.add(MATCH, 0, 0, null);
+        return new CaptureProgram(classes, parser.getGroupCount(), builder);
+    }
+
+    // Throws if the program for ast would have too many configs for the
+    // matchers. Run when a pattern with groups is compiled, so that one which
+    // compiles can always have its groups extracted later.
+    static void checkSize(RegexNode ast, String pattern) {
+        long configs = configCount(ast) + 1;
+        if (configs > MAX_CONFIGS) {
+            throw new RegexException("Pattern too large for capture extraction", 0, pattern,
+                    "Its repetitions make " + configs + " capture states, more than " + MAX_CONFIGS);
+        }
+    }
+
+    // The configs emit lays out for node, capped at Integer.MAX_VALUE
+    private static long configCount(RegexNode node) {
+        long configs;
+        if (CharClasses.rangesOf(node) != null) {
+            configs = 1;
+        } else if (node instanceof ConcatenationNode) {
+            ConcatenationNode concatenation = (ConcatenationNode) node;
+            configs = configCount(concatenation.getLeft()) + configCount(concatenation.getRight());
+        } else if (node instanceof AlternationNode) {
+            AlternationNode alternation = (AlternationNode) node;
+            configs = configCount(alternation.getLeft()) + configCount(alternation.getRight()) + 2;
+        } else if (node instanceof GroupNode) {
+            configs = configCount(((GroupNode) node).getChild()) + 2;
+        } else if (node instanceof RepetitionNode) {
+            RepetitionNode repetition = (RepetitionNode) node;
+            configs = configCount(repetition.getChild()) + (repetition.getOperator() == '*' ? 2 : 1);
+        } else if (node instanceof QuantifierNode) {
+            QuantifierNode quantifier = (QuantifierNode) node;
+            long copies = expandedSize(quantifier);
+            if (copies > LOOP_THRESHOLD) {
+                long counts = quantifier.getMax() != null ? quantifier.getMax() + 1L : quantifier.getMin() + 2L;
+                configs = (expandedSize(quantifier.getChild()) + 2) * counts;
+            } else {
+                configs = copies;
+            }
+        } else {
+            configs = 1;
+        }
+        return Math.min(configs, Integer.MAX_VALUE);
+    }
+
+    // Instructions emit produces for node when every repetition is copied,
+    // capped at Integer.MAX_VALUE
+    private static long expandedSize(RegexNode node) {
+        long size;
+        if (CharClasses.rangesOf(node) != null) {
+            size = 1;
+        } else if (node instanceof QuantifierNode) {
+            QuantifierNode quantifier = (QuantifierNode) node;
+            long child = expandedSize(quantifier.getChild());
+            size = quantifier.getMin() * child + (quantifier.getMax() == null ? child + 2
+                    : (quantifier.getMax() - (long) quantifier.getMin()) * (child + 1));
+        } else if (node instanceof ConcatenationNode) {
+            ConcatenationNode concatenation = (ConcatenationNode) node;
+            size = expandedSize(concatenation.getLeft()) + expandedSize(concatenation.getRight());
+        } else if (node instanceof AlternationNode) {
+            AlternationNode alternation = (AlternationNode) node;
+            size = expandedSize(alternation.getLeft()) + expandedSize(alternation.getRight()) + 2;
+        } else if (node instanceof GroupNode) {
+            size = expandedSize(((GroupNode) node).getChild()) + 2;
+        } else if (node instanceof RepetitionNode) {
+            RepetitionNode repetition = (RepetitionNode) node;
+            size = expandedSize(repetition.getChild()) + (repetition.getOperator() == '*' ? 2 : 1);
+        } else {
+            size = 1;
+        }
+        return Math.min(size, Integer.MAX_VALUE);
+    }
+
+    int size() {
+        return ops.length;
+    }
+
+    int getGroupCount() {
+        return groupCount;
+    }
+
+    // Two slots per group, group 0 being the whole match
+    int getSlotCount() {
+        return 2 * (groupCount + 1);
+    }
+
+    CharClasses getCharClasses() {
+        return classes;
+    }
+
+    int op(int pc) {
+        return ops[pc];
+    }
+
+    int arg(int pc) {
+        return args[pc];
+    }
+
+    int alternate(int pc) {
+        return alternates[pc];
+    }
+
+    int[] ranges(int pc) {
+        return ranges[pc];
+    }
+
+    boolean consumes(int pc, int classId) {
+        int[] pairs = ranges[pc];
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (classId >= pairs[i] && classId <= pairs[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Number of distinct threads: instructions, with those in loops counted
+    // once per iteration count
+    int getConfigCount() {
+        return configStart[ops.length];
+    }
+
+    int config(int pc, int count) {
+        return configStart[pc] + count;
+    }
+
+    boolean hasLoops() {
+        return loopMins.length > 0;
+    }
+
+    // For the LOOP at pc with count iterations done: BODY while the min is
+    // not reached, EXIT at the max, and both (body preferred) in between
+    int loopChoices(int pc, int count) {
+        int index = args[pc];
+        if (count < loopMins[index]) {
+            return BODY;
+        }
+        return loopMaxes[index] < 0 || count < loopMaxes[index] ? BODY | EXIT : EXIT;
+    }
+
+    // The count the body runs with when the LOOP at pc enters it. Past its
+    // min an unbounded loop is the copied form's (child+)?: the LOOP counts
+    // min at the split before the first extra iteration and min + 1 at the
+    // split after each one, while every extra iteration shares count min, so
+    // an empty one cannot be followed by another in the same step.
+    int bodyCount(int pc, int count) {
+        return loopMaxes[args[pc]] < 0 ? Math.min(count, loopMins[args[pc]]) : count;
+    }
+
+    // The count after the iteration that the NEXT at pc ends
+    int nextCount(int pc, int count) {
+        int index = args[args[pc]];
+        return loopMaxes[index] < 0 ? Math.min(count + 1, loopMins[index] + 1) : count + 1;
+    }
+
+    private static final class Builder {
+        final CharClasses classes;
+        int[] ops = new int[16];
+        int[] args = new int[16];
+        int[] alternates = new int[16];
+        int[][] ranges = new int[16][];
+        int size;
+        int[] loopMins = new int[4];
+        int[] loopMaxes = new int[4];
+        int loops;
+        boolean insideLoop;
+
+        Builder(CharClasses classes) {
+            this.classes = classes;
+        }
+
+        int add(int op, int arg, int alternate, int[] classRanges) {
+            if (size == ops.length) {
+                ops = Arrays.copyOf(ops, size * 2);
+                args = Arrays.copyOf(args, size * 2);
+                alternates = Arrays.copyOf(alternates, size * 2);
+                ranges = Arrays.copyOf(ranges, size * 2);
+            }
+            ops[size] = op;
+            args[size] = arg;
+            alternates[size] = alternate;
+            ranges[size] = classRanges;
+            return size++;
+        }
+
+        void emit(RegexNode node) {
+            char[] chars = CharClasses.rangesOf(node);
+            if (chars != null) {
+                add(CHAR, 0, 0, classRanges(chars));
+            } else if (node instanceof ConcatenationNode) {
+                emit(((ConcatenationNode) node).getLeft());
+                emit(((ConcatenationNode) node).getRight());
+            } else if (node instanceof AlternationNode) {
+                int split = add(SPLIT, 0, 0, null);
+                args[split] = size;
+                emit(((AlternationNode) node).getLeft());
+                int jump = add(JUMP, 0, 0, null);
+                alternates[split] = size;
+                emit(((AlternationNode) node).getRight());
+                args[jump] = size;
+            } else if (node instanceof GroupNode) {
+                GroupNode group = (GroupNode) node;
+                add(SAVE, 2 * group.getIndex(), 0, null);
+                emit(group.getChild());
+                add(SAVE, 2 * group.getIndex() + 1, 0, null);
+            } else if (node instanceof RepetitionNode) {
+                RepetitionNode repetition = (RepetitionNode) node;
+                switch (repetition.getOperator()) {
+                    case '*':
+                        emitStar(repetition.getChild());
+                        break;
+                    case '+':
+                        int loop = size;
+                        emit(repetition.getChild());
+                        add(SPLIT, loop, size + 1, null);
+                        break;
+                    default:
+                        emitOptional(repetition.getChild(), 1);
+                }
+            } else if (node instanceof QuantifierNode) {
+                QuantifierNode quantifier = (QuantifierNode) node;
+                if (!insideLoop && expandedSize(quantifier) > LOOP_THRESHOLD) {
+                    emitLoop(quantifier);
+                    return;
+                }
+                for (int i = 0; i < quantifier.getMin(); i++) {
+                    emit(quantifier.getChild());
+                }
+                if (quantifier.getMax() == null) {
+                    emitStar(quantifier.getChild());
+                } else {
+                    emitOptional(quantifier.getChild(), quantifier.getMax() - quantifier.getMin());
+                }
+            } else {
+                throw new IllegalArgumentException("Unsupported regex node type: "
+                        + (node != null ? node.getClass().getName() : "null"));
+            }
+        }
+
+        // As (child+)?, so that when child matches empty the loop still runs
+        // once and sets its groups, as in Perl and java.util.regex
+        void emitStar(RegexNode child) {
+            int split = add(SPLIT, 0, 0, null);
+            int loop = size;
+            args[split] = loop;
+            emit(child);
+            add(SPLIT, loop, size + 1, null);
+            alternates[split] = size;
+        }
+
+        // Up to count copies of child, each one only tried after the previous
+        void emitOptional(RegexNode child, int count) {
+            int[] splits = new int[count];
+            for (int i = 0; i < count; i++) {
+                splits[i] = add(SPLIT, 0, 0, null);
+                args[splits[i]] = size;
+                emit(child);
+            }
+            for (int split : splits) {
+                alternates[split] = size;
+            }
+        }
+
+        // One copy of the body between LOOP and NEXT. Repetitions inside it
+        // are copied, so a thread only ever carries one count.
+        void emitLoop(QuantifierNode quantifier) {
+            if (loops == loopMins.length) {
+                loopMins = Arrays.copyOf(loopMins, loops * 2);
+                loopMaxes = Arrays.copyOf(loopMaxes, loops * 2);
+            }
+            loopMins[loops] = quantifier.getMin();
+            loopMaxes[loops] = quantifier.getMax() != null ? quantifier.getMax() : -1;
+            int loop = add(LOOP, loops++, 0, null);
+            insideLoop = true;
+            emit(quantifier.getChild());
+            insideLoop = false;
+            add(NEXT, loop, 0, null);
+            alternates[loop] = size;
+        }
+
+        int[] classRanges(char[] chars) {
+            int[] pairs = new int[chars.length];
+            int count = 0;
+            for (int i = 0; i < chars.length; i += 2) {
+                int lo = classes.classOf(chars[i]);
+                int hi = classes.classOf(chars[i + 1]);
+                // Merge with the previous pair when the class ids run on
+                if (count > 0 && lo <= pairs[count - 1] + 1) {
+                    pairs[count - 1] = Math.max(pairs[count - 1], hi);
+                } else {
+                    pairs[count++] = lo;
+                    pairs[count++] = hi;
+                }
+            }
+            return Arrays.copyOf(pairs, count);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package lite_regex;
+
+import java.util.Arrays;
+
+// Pike VM over a CaptureProgram in which every thread carries its own copy
+// of the slots. Threads are kept in priority order and a later thread
+// reaching a config (instruction and loop count) already taken this step is
+// dropped, so the run is O(span length * configs) however ambiguous the
+// pattern. The general case for captures, used when the span is too long for
+// BoundedBacktracker and the program is not one-pass. Not thread-safe: use
+// one VM per thread.
+final class CaptureVM {
+    private static final int EXPLORE = 0;
+    private static final int RESTORE = 1;
+
+    private final CaptureProgram program;
+    private final int slotCount;
+    private SparseSet current;
+    private SparseSet next;
+    // Instruction, loop count and slots of the i-th config in each set,
+    // slotCount ints per config; grown as threads are added
+    private int[] currentPcs = new int[16];
+    private int[] nextPcs = new int[16];
+    private int[] currentCounts = new int[16];
+    private int[] nextCounts = new int[16];
+    private int[] currentSlots;
+    private int[] nextSlots;
+    // Slots of the path being followed while threads are added
+    private final int[] working;
+    // Frames of three ints: EXPLORE, pc, count or RESTORE, slot, old value
+    private int[] stack = new int[48];
+
+    CaptureVM(CaptureProgram program) {
+        this.program = program;
+        this.slotCount = program.getSlotCount();
+        this.current = new SparseSet(program.getConfigCount());
+        this.next = new SparseSet(program.getConfigCount());
+        this.currentSlots = new int[16 * slotCount];
+        this.nextSlots = new int[16 * slotCount];
+        this.working = new int[slotCount];
+    }
+
+    // Slots of the match spanning exactly [start, end), or null if there is none
+    int[] capture(CharSequence text, int start, int end) {
+        CharClasses classes = program.getCharClasses();
+        next.clear();
+        Arrays.fill(working, -1);
+        addThread(0, 0, start);
+        swap();
+
+        for (int pos = start; pos < end && !current.isEmpty(); pos++) {
+            int classId = classes.classOf(text.charAt(pos));
+            next.clear();
+            for (int i = 0; i < current.size(); i++) {
+                int pc = currentPcs[i];
+                if (program.op(pc) == CaptureProgram.CHAR && program.consumes(pc, classId)) {
+                    System.arraycopy(currentSlots, i * slotCount, working, 0, slotCount);
+                    addThread(pc + 1, currentCounts[i], pos + 1);
+                }
+            }
+            swap();
+        }
+
+        // The first thread in priority order that can end here wins
+        for (int i = 0; i < current.size(); i++) {
+            if (program.op(currentPcs[i]) == CaptureProgram.MATCH) {
+                int[] result = Arrays.copyOfRange(currentSlots, i * slotCount, (i + 1) * slotCount);
+                result[0] = start;
+                result[1] = end;
+                return result;
+            }
+        }
+        return null;
+    }
+
+    // Follows jumps, splits, saves and loops from pc in priority order,
+    // adding each config reached to next along with the slots of each CHAR
+    // or MATCH. working holds the slots of the thread being extended and is
+    // restored before returning.
+    private void addThread(int pc, int count, int pos) {
+        int top = push(0, EXPLORE, pc, count);
+        while (top > 0) {
+            top -= 3;
+            if (stack[top] == RESTORE) {
+                working[stack[top + 1]] = stack[top + 2];
+                continue;
+            }
+            pc = stack[top + 1];
+            count = stack[top + 2];
+            while (next.add(program.config(pc, count))) {
+                int index = next.size() - 1;
+                ensureCapacity(index + 1);
+                nextPcs[index] = pc;
+                nextCounts[index] = count;
+                int op = program.op(pc);
+                if (op == CaptureProgram.SPLIT) {
+                    top = push(top, EXPLORE, program.alternate(pc), count);
+                    pc = program.arg(pc);
+                } else if (op == CaptureProgram.JUMP) {
+                    pc = program.arg(pc);
+                } else if (op == CaptureProgram.SAVE) {
+                    int slot = program.arg(pc);
+                    top = push(top, RESTORE, slot, working[slot]);
+                    working[slot] = pos;
+                    pc++;
+                } else if (op == CaptureProgram.LOOP) {
+                    int choices = program.loopChoices(pc, count);
+                    if (choices == CaptureProgram.EXIT) {
+                        pc = program.alternate(pc);
+                        count = 0;
+                    } else {
+                        if ((choices & CaptureProgram.EXIT) != 0) {
+                            top = push(top, EXPLORE, program.alternate(pc), 0);
+                        }
+                        count = program.bodyCount(pc, count);
+                        pc++;
+                    }
+                } else if (op == CaptureProgram.NEXT) {
+                    count = program.nextCount(pc, count);
+                    pc = program.arg(pc);
+                } else {
+                    System.arraycopy(working, 0, nextSlots, index * slotCount, slotCount);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void swap() {
+        SparseSet states = current;
+        current = next;
+        next = states;
+        int[] pcs = currentPcs;
+        currentPcs = nextPcs;
+        nextPcs = pcs;
+        int[] counts = currentCounts;
+        currentCounts = nextCounts;
+        nextCounts = counts;
+        int[] slots = currentSlots;
+        currentSlots = nextSlots;
+        nextSlots = slots;
+    }
+
+    // Room for the first threads configs in both sets' arrays
+    private void ensureCapacity(int threads) {
+        if (threads > currentPcs.length) {
+            int length = Math.max(threads, 2 * currentPcs.length);
+            currentPcs = Arrays.copyOf(currentPcs, length);
+            nextPcs = Arrays.copyOf(nextPcs, length);
+            currentCounts = Arrays.copyOf(currentCounts, length);
+            nextCounts = Arrays.copyOf(nextCounts, length);
+            currentSlots = Arrays.copyOf(currentSlots, length * slotCount);
+            nextSlots = Arrays.copyOf(nextSlots, length * slotCount);
+        }
+    }
+
+    private int push(int top, int kind, int a, int b) {
+        if (top + 3 > stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[top] = kind;
+        stack[top + 1] = a;
+        stack[top + 2] = b;
+        return top + 3;
+    }
+}
@@ -0,0 +1,40 @@
+package lite_regex;
+
+// Read-only char view of a range of a char[]. The range can be moved with
+// reset(), so one view per thread serves every char[] and decoded byte input
+// the engine is handed, without copying it into a String.
+final class CharArraySequence implements CharSequence {
+    private char[] array;
+    private int offset;
+    private int length;
+
+    CharArraySequence(char[] array, int offset, int length) {
+        reset(array, offset, length);
+    }
+
+    void reset(char[] array, int offset, int length) {
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return array[offset + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new CharArraySequence(array, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(array, offset, length);
+    }
+}
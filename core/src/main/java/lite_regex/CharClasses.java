@@ -0,0 +1,118 @@
+package lite_regex;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+// Partitions the char range into classes of chars the automaton never needs to
+// tell apart. Class k covers [boundaries[k-1], boundaries[k]), with class 0
+// starting at '\0' and the last class running up to Character.MAX_VALUE.
+// Computed once per pattern so the automata are built over class ids: '.',
+// \w and [^...] become a handful of transitions instead of one per char.
+public class CharClasses {
+    // Every BMP char except the surrogates; CodeUnits adds the code points
+    // beyond the BMP for '.' and [^...]
+    static final char[] ANY_CHAR = {0, '\uD7FF', '\uE000', '\uFFFF'};
+    static final char[] DIGIT = {'0', '9'};
+    static final char[] WORD_CHAR = {'0', '9', 'A', 'Z', '_', '_', 'a', 'z'};
+
+    private final char[] boundaries;
+    // Looked up directly for Latin-1, which also covers every UTF-8 byte
+    private final int[] latin1Classes = new int[256];
+
+    private CharClasses(char[] boundaries) {
+        this.boundaries = boundaries;
+        for (char c = 0; c < 256; c++) {
+            latin1Classes[c] = lookup(c);
+        }
+    }
+
+    public static CharClasses fromAst(RegexNode ast) {
+        return fromAsts(Collections.singletonList(ast));
+    }
+
+    // One partition shared by several patterns, for automata that run them together
+    public static CharClasses fromAsts(List<RegexNode> asts) {
+        TreeSet<Character> cuts = new TreeSet<>();
+        for (RegexNode ast : asts) {
+            collectCuts(ast, cuts);
+        }
+        char[] boundaries = new char[cuts.size()];
+        int i = 0;
+        for (char c : cuts) {
+            boundaries[i++] = c;
+        }
+        return new CharClasses(boundaries);
+    }
+
+    // The chars a single-char node matches, as sorted inclusive [lo, hi] pairs;
+    // null for nodes that are not single-char matchers
+    static char[] rangesOf(RegexNode node) {
+        if (node instanceof CharacterNode) {
+            char c = ((CharacterNode) node).getCharacter();
+            return new char[] {c, c};
+        } else if (node instanceof AnyCharNode) {
+            return ANY_CHAR;
+        } else if (node instanceof DigitNode) {
+            return DIGIT;
+        } else if (node instanceof WordCharNode) {
+            return WORD_CHAR;
+        } else if (node instanceof CharacterClassNode) {
+            CharacterClassNode charClass = (CharacterClassNode) node;
+            // Negated classes cover what '.' does, less the listed chars
+            return charClass.isNegated()
+                    ? CharRanges.intersect(ANY_CHAR, CharRanges.negate(charClass.getRanges()))
+                    : charClass.getRanges();
+        } else if (node instanceof CharRangeNode) {
+            return ((CharRangeNode) node).getRanges();
+        }
+        return null;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        PatternArchive.writeChars(out, boundaries);
+    }
+
+    static CharClasses read(ByteBuffer in) {
+        return new CharClasses(PatternArchive.readChars(in));
+    }
+
+    public int classOf(char c) {
+        return c < 256 ? latin1Classes[c] : lookup(c);
+    }
+
+    public int getClassCount() {
+        return boundaries.length + 1;
+    }
+
+    private int lookup(char c) {
+        int index = Arrays.binarySearch(boundaries, c);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private static void collectCuts(RegexNode node, TreeSet<Character> cuts) {
+        char[] ranges = rangesOf(node);
+        if (ranges != null) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (ranges[i] > 0) cuts.add(ranges[i]);
+                if (ranges[i + 1] < Character.MAX_VALUE) cuts.add((char) (ranges[i + 1] + 1));
+            }
+        } else if (node instanceof ConcatenationNode) {
+            collectCuts(((ConcatenationNode) node).getLeft(), cuts);
+            collectCuts(((ConcatenationNode) node).getRight(), cuts);
+        } else if (node instanceof AlternationNode) {
+            collectCuts(((AlternationNode) node).getLeft(), cuts);
+            collectCuts(((AlternationNode) node).getRight(), cuts);
+        } else if (node instanceof RepetitionNode) {
+            collectCuts(((RepetitionNode) node).getChild(), cuts);
+        } else if (node instanceof QuantifierNode) {
+            collectCuts(((QuantifierNode) node).getChild(), cuts);
+        } else if (node instanceof GroupNode) {
+            collectCuts(((GroupNode) node).getChild(), cuts);
+        }
+    }
+}
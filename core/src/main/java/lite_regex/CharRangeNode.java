@@ -0,0 +1,28 @@
+package lite_regex;
+
+// Matches one code unit in any of the given sorted, inclusive [lo, hi] pairs.
+// Produced when an AST is lowered to an encoding (see CodeUnits); an empty
+// range list never matches.
+public class CharRangeNode extends RegexNode {
+    private final char[] ranges;
+
+    public CharRangeNode(char[] ranges) {
+        this.ranges = ranges;
+    }
+
+    public char[] getRanges() {
+        return ranges;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Ranges(");
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(String.format("%04X-%04X", (int) ranges[i], (int) ranges[i + 1]));
+        }
+        return sb.append(")").toString();
+    }
+}
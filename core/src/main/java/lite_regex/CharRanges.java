@@ -0,0 +1,110 @@
+package lite_regex;
+
+import java.util.Arrays;
+
+// Sets of chars as a char[] of sorted inclusive [lo, hi] pairs that neither
+// overlap nor touch, the form CharClasses and the automata consume. Every
+// method returns a new array in that form and leaves its arguments alone.
+// Code points past the BMP, which a class may also list, use an int[] of
+// the same form.
+final class CharRanges {
+    static final char[] EMPTY = {};
+    static final int[] NO_CODE_POINTS = {};
+
+    private CharRanges() {
+    }
+
+    // The first length chars of pairs, [lo, hi] pairs in any order that may
+    // overlap, as a set
+    static char[] normalize(char[] pairs, int length) {
+        int count = length / 2;
+        long[] sorted = new long[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = (long) pairs[2 * i] << 16 | pairs[2 * i + 1];
+        }
+        Arrays.sort(sorted);
+        char[] result = new char[length];
+        int size = 0;
+        for (long pair : sorted) {
+            char lo = (char) (pair >>> 16);
+            char hi = (char) pair;
+            if (size > 0 && lo <= result[size - 1] + 1) {
+                result[size - 1] = (char) Math.max(result[size - 1], hi);
+            } else {
+                result[size++] = lo;
+                result[size++] = hi;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    // The same for pairs of code points
+    static int[] normalize(int[] pairs, int length) {
+        int count = length / 2;
+        long[] sorted = new long[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = (long) pairs[2 * i] << 32 | pairs[2 * i + 1];
+        }
+        Arrays.sort(sorted);
+        int[] result = new int[length];
+        int size = 0;
+        for (long pair : sorted) {
+            int lo = (int) (pair >>> 32);
+            int hi = (int) pair;
+            if (size > 0 && lo <= result[size - 1] + 1) {
+                result[size - 1] = Math.max(result[size - 1], hi);
+            } else {
+                result[size++] = lo;
+                result[size++] = hi;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    static char[] union(char[] a, char[] b) {
+        char[] both = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, both, a.length, b.length);
+        return normalize(both, both.length);
+    }
+
+    static char[] intersect(char[] a, char[] b) {
+        char[] result = new char[a.length + b.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            char lo = (char) Math.max(a[i], b[j]);
+            char hi = (char) Math.min(a[i + 1], b[j + 1]);
+            if (lo <= hi) {
+                result[size++] = lo;
+                result[size++] = hi;
+            }
+            // Drop whichever range ends first; the other may overlap the next one
+            if (a[i + 1] < b[j + 1]) {
+                i += 2;
+            } else {
+                j += 2;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    // Every char not in ranges
+    static char[] negate(char[] ranges) {
+        char[] result = new char[ranges.length + 2];
+        int size = 0;
+        int next = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (ranges[i] > next) {
+                result[size++] = (char) next;
+                result[size++] = (char) (ranges[i] - 1);
+            }
+            next = ranges[i + 1] + 1;
+        }
+        if (next <= Character.MAX_VALUE) {
+            result[size++] = (char) next;
+            result[size++] = Character.MAX_VALUE;
+        }
+        return Arrays.copyOf(result, size);
+    }
+}
@@ -0,0 +1,61 @@
+package lite_regex;
+
+// [...] or [^...]: the listed chars are kept as sorted [lo, hi] pairs (see
+// CharRanges), so [a-zA-Z0-9] is three ranges however many chars it covers.
+// Members past the BMP, like [😀], are kept apart as code points, since no
+// single char matches them; CodeUnits turns them into sequences of units.
+public class CharacterClassNode extends RegexNode {
+    private final char[] ranges;
+    private final int[] supplementary;
+    private final boolean negated;
+
+    // ranges are [lo, hi] pairs in any order, and may overlap
+    public CharacterClassNode(char[] ranges, boolean negated) {
+        this(ranges, CharRanges.NO_CODE_POINTS, negated);
+    }
+
+    // supplementary holds [lo, hi] pairs of code points past the BMP, in the
+    // same form
+    public CharacterClassNode(char[] ranges, int[] supplementary, boolean negated) {
+        this.ranges = CharRanges.normalize(ranges, ranges.length);
+        this.supplementary = CharRanges.normalize(supplementary, supplementary.length);
+        this.negated = negated;
+    }
+
+    // The chars listed between the brackets, before any negation
+    public char[] getRanges() {
+        return ranges;
+    }
+
+    // The code points past the BMP listed between the brackets, before any negation
+    public int[] getSupplementary() {
+        return supplementary;
+    }
+
+    public boolean isNegated() {
+        return negated;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("CharClass[");
+        if (negated) {
+            sb.append("^");
+        }
+        for (int i = 0; i < ranges.length; i += 2) {
+            sb.append(ranges[i]);
+            if (ranges[i + 1] != ranges[i]) {
+                sb.append('-').append(ranges[i + 1]);
+            }
+        }
+        for (int i = 0; i < supplementary.length; i += 2) {
+            sb.appendCodePoint(supplementary[i]);
+            if (supplementary[i + 1] != supplementary[i]) {
+                sb.append('-').appendCodePoint(supplementary[i + 1]);
+            }
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+}
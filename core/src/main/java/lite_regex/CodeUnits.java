@@ -0,0 +1,254 @@
+package lite_regex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+// Lowers a parsed AST, whose single-char nodes stand for sets of Unicode code
+// points, to one over the code units of an encoding, which is what the
+// automata consume. Afterwards every single-char node matches exactly one
+// code unit, and a code point that takes several units is a sequence of them.
+final class CodeUnits {
+    // Code points past the BMP, which '.' and [^...] also match
+    private static final int[] SUPPLEMENTARY = {Character.MIN_SUPPLEMENTARY_CODE_POINT, Character.MAX_CODE_POINT};
+    // Largest code point encoded in 1, 2 and 3 UTF-8 bytes
+    private static final int[] UTF8_LENGTH_LIMITS = {0x7F, 0x7FF, 0xFFFF};
+
+    private CodeUnits() {
+    }
+
+    // For UTF-16 chars. Single-char nodes already cover the BMP (see
+    // CharClasses.rangesOf), so '.' and classes only gain surrogate pairs
+    // for the code points they match past it.
+    static RegexNode utf16(RegexNode node) {
+        int[] supplementary = supplementaryOf(node);
+        if (supplementary.length > 0) {
+            RegexNode pairs = surrogatePairs(supplementary);
+            // [😀] has no member in the BMP
+            return CharClasses.rangesOf(node).length == 0 ? pairs : new AlternationNode(node, pairs);
+        }
+        return lowerChildren(node, CodeUnits::utf16);
+    }
+
+    // For UTF-8 bytes, each one a char in 0-255. A set of code points
+    // becomes an alternation of byte sequences; bytes that are not valid
+    // UTF-8 are matched by nothing.
+    static RegexNode utf8(RegexNode node) {
+        if (node instanceof ConcatenationNode) {
+            // A literal past the BMP is parsed as two chars, a surrogate pair
+            List<RegexNode> parts = new ArrayList<>();
+            flatten(node, parts);
+            RegexNode result = null;
+            for (int i = 0; i < parts.size(); i++) {
+                RegexNode part = parts.get(i);
+                RegexNode lowered;
+                if (i + 1 < parts.size() && isChar(part, true) && isChar(parts.get(i + 1), false)) {
+                    int codePoint = Character.toCodePoint(((CharacterNode) part).getCharacter(),
+                            ((CharacterNode) parts.get(++i)).getCharacter());
+                    lowered = utf8Sequences(new int[] {codePoint, codePoint});
+                } else {
+                    lowered = utf8(part);
+                }
+                result = result == null ? lowered : new ConcatenationNode(result, lowered);
+            }
+            return result;
+        }
+        char[] chars = CharClasses.rangesOf(node);
+        if (chars == null) {
+            return lowerChildren(node, CodeUnits::utf8);
+        }
+        // Lone surrogates are not code points, so they are dropped; that may
+        // split each range in two
+        char[] scalars = CharRanges.intersect(chars, CharClasses.ANY_CHAR);
+        int[] supplementary = supplementaryOf(node);
+        int[] codePoints = new int[scalars.length + supplementary.length];
+        for (int i = 0; i < scalars.length; i++) {
+            codePoints[i] = scalars[i];
+        }
+        System.arraycopy(supplementary, 0, codePoints, scalars.length, supplementary.length);
+        return utf8Sequences(codePoints);
+    }
+
+    // The code points past the BMP node matches, as sorted [lo, hi] pairs
+    private static int[] supplementaryOf(RegexNode node) {
+        if (node instanceof AnyCharNode) {
+            return SUPPLEMENTARY;
+        }
+        if (!(node instanceof CharacterClassNode)) {
+            return CharRanges.NO_CODE_POINTS;
+        }
+        CharacterClassNode charClass = (CharacterClassNode) node;
+        int[] listed = charClass.getSupplementary();
+        if (!charClass.isNegated()) {
+            return listed;
+        }
+        // Whatever lies between the listed ranges
+        int[] result = new int[listed.length + 2];
+        int size = 0;
+        int next = SUPPLEMENTARY[0];
+        for (int i = 0; i < listed.length; i += 2) {
+            if (listed[i] > next) {
+                result[size++] = next;
+                result[size++] = listed[i] - 1;
+            }
+            next = listed[i + 1] + 1;
+        }
+        if (next <= SUPPLEMENTARY[1]) {
+            result[size++] = next;
+            result[size++] = SUPPLEMENTARY[1];
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    // The code points in the sorted [lo, hi] pairs, all past the BMP, as an
+    // alternation of surrogate pairs, each a high surrogate range followed by
+    // a low one. A range is split where its first or last high surrogate
+    // takes only part of the low surrogates.
+    private static RegexNode surrogatePairs(int[] codePoints) {
+        RegexNode result = null;
+        for (int i = 0; i < codePoints.length; i += 2) {
+            char firstHigh = Character.highSurrogate(codePoints[i]);
+            char lastHigh = Character.highSurrogate(codePoints[i + 1]);
+            char firstLow = Character.lowSurrogate(codePoints[i]);
+            char lastLow = Character.lowSurrogate(codePoints[i + 1]);
+            List<RegexNode> sequences = new ArrayList<>();
+            if (firstHigh == lastHigh) {
+                sequences.add(surrogatePair(firstHigh, firstHigh, firstLow, lastLow));
+            } else {
+                char middleFirst = firstLow == Character.MIN_LOW_SURROGATE ? firstHigh : (char) (firstHigh + 1);
+                char middleLast = lastLow == Character.MAX_LOW_SURROGATE ? lastHigh : (char) (lastHigh - 1);
+                if (middleFirst != firstHigh) {
+                    sequences.add(surrogatePair(firstHigh, firstHigh, firstLow, Character.MAX_LOW_SURROGATE));
+                }
+                if (middleFirst <= middleLast) {
+                    sequences.add(surrogatePair(middleFirst, middleLast,
+                            Character.MIN_LOW_SURROGATE, Character.MAX_LOW_SURROGATE));
+                }
+                if (middleLast != lastHigh) {
+                    sequences.add(surrogatePair(lastHigh, lastHigh, Character.MIN_LOW_SURROGATE, lastLow));
+                }
+            }
+            for (RegexNode sequence : sequences) {
+                result = result == null ? sequence : new AlternationNode(result, sequence);
+            }
+        }
+        return result;
+    }
+
+    private static RegexNode surrogatePair(char firstHigh, char lastHigh, char firstLow, char lastLow) {
+        return new ConcatenationNode(unit(firstHigh, lastHigh), unit(firstLow, lastLow));
+    }
+
+    private static RegexNode unit(char from, char to) {
+        return from == to ? new CharacterNode(from) : new CharRangeNode(new char[] {from, to});
+    }
+
+    private static boolean isChar(RegexNode node, boolean highSurrogate) {
+        if (!(node instanceof CharacterNode)) {
+            return false;
+        }
+        char c = ((CharacterNode) node).getCharacter();
+        return highSurrogate ? Character.isHighSurrogate(c) : Character.isLowSurrogate(c);
+    }
+
+    private static void flatten(RegexNode node, List<RegexNode> parts) {
+        if (node instanceof ConcatenationNode) {
+            flatten(((ConcatenationNode) node).getLeft(), parts);
+            flatten(((ConcatenationNode) node).getRight(), parts);
+        } else {
+            parts.add(node);
+        }
+    }
+
+    private static RegexNode lowerChildren(RegexNode node, UnaryOperator<RegexNode> lower) {
+        if (node instanceof ConcatenationNode) {
+            ConcatenationNode concat = (ConcatenationNode) node;
+            return new ConcatenationNode(lower.apply(concat.getLeft()), lower.apply(concat.getRight()));
+        } else if (node instanceof AlternationNode) {
+            AlternationNode alternation = (AlternationNode) node;
+            return new AlternationNode(lower.apply(alternation.getLeft()), lower.apply(alternation.getRight()));
+        } else if (node instanceof RepetitionNode) {
+            RepetitionNode repetition = (RepetitionNode) node;
+            return new RepetitionNode(lower.apply(repetition.getChild()), repetition.getOperator());
+        } else if (node instanceof QuantifierNode) {
+            QuantifierNode quantifier = (QuantifierNode) node;
+            return new QuantifierNode(lower.apply(quantifier.getChild()), quantifier.getMin(), quantifier.getMax());
+        } else if (node instanceof GroupNode) {
+            GroupNode group = (GroupNode) node;
+            return new GroupNode(lower.apply(group.getChild()), group.getIndex());
+        }
+        return node;
+    }
+
+    // The code points in the sorted [lo, hi] pairs as an alternation of UTF-8
+    // byte sequences, each a concatenation of byte ranges. A range is split
+    // until both ends encode to the same number of bytes and every byte after
+    // the first spans its whole continuation range, as in RE2 and Rust's
+    // utf8-ranges; then the bytes of lo and hi give the ranges directly.
+    static RegexNode utf8Sequences(int[] codePoints) {
+        RegexNode result = null;
+        ArrayDeque<int[]> pending = new ArrayDeque<>();
+        for (int i = codePoints.length - 2; i >= 0; i -= 2) {
+            pending.push(new int[] {codePoints[i], codePoints[i + 1]});
+        }
+        while (!pending.isEmpty()) {
+            int[] range = pending.pop();
+            int lo = range[0];
+            int hi = range[1];
+            int[] split = split(lo, hi);
+            if (split != null) {
+                pending.push(new int[] {split[2], split[3]});
+                pending.push(new int[] {split[0], split[1]});
+                continue;
+            }
+            byte[] first = encode(lo);
+            byte[] last = encode(hi);
+            RegexNode sequence = null;
+            for (int k = 0; k < first.length; k++) {
+                RegexNode unit = unit((char) (first[k] & 0xFF), (char) (last[k] & 0xFF));
+                sequence = sequence == null ? unit : new ConcatenationNode(sequence, unit);
+            }
+            result = result == null ? sequence : new AlternationNode(result, sequence);
+        }
+        return result != null ? result : new CharRangeNode(new char[0]);
+    }
+
+    // [lo, hi] as two ranges if it still needs splitting, otherwise null
+    private static int[] split(int lo, int hi) {
+        for (int limit : UTF8_LENGTH_LIMITS) {
+            if (lo <= limit && limit < hi) {
+                return new int[] {lo, limit, limit + 1, hi};
+            }
+        }
+        if (hi <= UTF8_LENGTH_LIMITS[0]) {
+            return null;
+        }
+        for (int bytes = 1; bytes < 4; bytes++) {
+            int mask = (1 << (6 * bytes)) - 1;
+            if ((lo & ~mask) != (hi & ~mask)) {
+                if ((lo & mask) != 0) {
+                    return new int[] {lo, lo | mask, (lo | mask) + 1, hi};
+                }
+                if ((hi & mask) != mask) {
+                    return new int[] {lo, (hi & ~mask) - 1, hi & ~mask, hi};
+                }
+            }
+        }
+        return null;
+    }
+
+    private static byte[] encode(int codePoint) {
+        if (codePoint <= 0x7F) {
+            return new byte[] {(byte) codePoint};
+        } else if (codePoint <= 0x7FF) {
+            return new byte[] {(byte) (0xC0 | codePoint >> 6), (byte) (0x80 | codePoint & 0x3F)};
+        } else if (codePoint <= 0xFFFF) {
+            return new byte[] {(byte) (0xE0 | codePoint >> 12), (byte) (0x80 | codePoint >> 6 & 0x3F),
+                    (byte) (0x80 | codePoint & 0x3F)};
+        }
+        return new byte[] {(byte) (0xF0 | codePoint >> 18), (byte) (0x80 | codePoint >> 12 & 0x3F),
+                (byte) (0x80 | codePoint >> 6 & 0x3F), (byte) (0x80 | codePoint & 0x3F)};
+    }
+}
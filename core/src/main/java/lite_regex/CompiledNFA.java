@@ -0,0 +1,113 @@
+package lite_regex;
+
+import java.util.Arrays;
+
+// An NFA with each state's epsilon closure precomputed, for the Pike VM and
+// SearchDFA. Char edges are read straight from the NFA's arrays; closures are
+// stored the same way, the closure of state s being the entries
+// closureStart[s] up to closureStart[s + 1] of closures, sorted. Closures only
+// list the states that matter to a simulation: those that consume a char or
+// accept. Immutable, so one instance serves every thread's matcher.
+public class CompiledNFA {
+    private final NFA nfa;
+    private final int[] closureStart;
+    private final int[] closures;
+
+    private CompiledNFA(NFA nfa, int[] closureStart, int[] closures) {
+        this.nfa = nfa;
+        this.closureStart = closureStart;
+        this.closures = closures;
+    }
+
+    public static CompiledNFA compile(NFA nfa) {
+        int n = nfa.getStateCount();
+        int[] closureStart = new int[n + 1];
+        int[] closures = new int[n];
+        int size = 0;
+        SparseSet reached = new SparseSet(n);
+        int[] stack = new int[16];
+        for (int i = 0; i < n; i++) {
+            reached.clear();
+            int top = 0;
+            stack[top++] = i;
+            while (top > 0) {
+                int state = stack[--top];
+                if (!reached.add(state)) {
+                    continue;
+                }
+                int end = nfa.epsilonsEnd(state);
+                if (top + end - nfa.epsilonsStart(state) > stack.length) {
+                    stack = Arrays.copyOf(stack, 2 * stack.length + end - nfa.epsilonsStart(state));
+                }
+                for (int edge = nfa.epsilonsStart(state); edge < end; edge++) {
+                    stack[top++] = nfa.epsilonTarget(edge);
+                }
+            }
+
+            closureStart[i] = size;
+            for (int k = 0; k < reached.size(); k++) {
+                int state = reached.get(k);
+                if (nfa.transitionsEnd(state) > nfa.transitionsStart(state) || nfa.isAccepting(state)) {
+                    if (size == closures.length) {
+                        closures = Arrays.copyOf(closures, 2 * size);
+                    }
+                    closures[size++] = state;
+                }
+            }
+            Arrays.sort(closures, closureStart[i], size);
+        }
+        closureStart[n] = size;
+        return new CompiledNFA(nfa, closureStart, Arrays.copyOf(closures, size));
+    }
+
+    public int getStateCount() {
+        return nfa.getStateCount();
+    }
+
+    CharClasses getCharClasses() {
+        return nfa.getCharClasses();
+    }
+
+    int getStart() {
+        return nfa.getStart();
+    }
+
+    boolean isAccepting(int state) {
+        return nfa.isAccepting(state);
+    }
+
+    int getPatternId(int state) {
+        return nfa.getPatternId(state);
+    }
+
+    // Char edges, as in NFA
+    int transitionsStart(int state) {
+        return nfa.transitionsStart(state);
+    }
+
+    int transitionsEnd(int state) {
+        return nfa.transitionsEnd(state);
+    }
+
+    int label(int edge) {
+        return nfa.label(edge);
+    }
+
+    int target(int edge) {
+        return nfa.target(edge);
+    }
+
+    // The closure of state is closure(closureStart(state)) up to
+    // closure(closureEnd(state) - 1)
+    int closureStart(int state) {
+        return closureStart[state];
+    }
+
+    int closureEnd(int state) {
+        return closureStart[state + 1];
+    }
+
+    int closure(int index) {
+        return closures[index];
+    }
+}
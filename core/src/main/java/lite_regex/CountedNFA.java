@@ -0,0 +1,134 @@
+package lite_regex;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+// An NFA that contains counted repetitions, with what CountingMatcher needs
+// to run it. A thread is a configuration: an NFA state plus, for states
+// inside a counted repetition's body, how many iterations are complete. Only
+// states are numbered here; counts travel with the matcher's threads, so
+// nothing is sized by a repetition's bounds. Immutable once compiled.
+public class CountedNFA {
+    private static final int NONE = -1;
+
+    // Edges and repetitions are read straight from the NFA
+    private final NFA nfa;
+    // Repetition whose body the state is in, or NONE
+    private final int[] region;
+    // Repetition whose iterations end in the state, or NONE
+    private final int[] iterationEnd;
+
+    private CountedNFA(NFA nfa, int[] region, int[] iterationEnd) {
+        this.nfa = nfa;
+        this.region = region;
+        this.iterationEnd = iterationEnd;
+    }
+
+    public static CountedNFA compile(NFA nfa) {
+        int n = nfa.getStateCount();
+        int[] iterationEnd = new int[n];
+        Arrays.fill(iterationEnd, NONE);
+        int[] region = new int[n];
+        Arrays.fill(region, NONE);
+        // A body is everything reachable from its start up to the state its
+        // iterations end in, which has no plain edges of its own
+        for (int k = 0; k < nfa.getRepetitionCount(); k++) {
+            iterationEnd[nfa.getRepetitionState(k)] = k;
+            int body = nfa.getRepetitionBody(k);
+            Deque<Integer> pending = new ArrayDeque<>();
+            pending.push(body);
+            region[body] = k;
+            while (!pending.isEmpty()) {
+                int state = pending.pop();
+                for (int edge = nfa.transitionsStart(state); edge < nfa.transitionsEnd(state); edge++) {
+                    enter(nfa.target(edge), k, region, pending);
+                }
+                for (int edge = nfa.epsilonsStart(state); edge < nfa.epsilonsEnd(state); edge++) {
+                    enter(nfa.epsilonTarget(edge), k, region, pending);
+                }
+            }
+        }
+        return new CountedNFA(nfa, region, iterationEnd);
+    }
+
+    private static void enter(int target, int repetition, int[] region, Deque<Integer> pending) {
+        if (region[target] == NONE) {
+            region[target] = repetition;
+            pending.push(target);
+        }
+    }
+
+    public int getStateCount() {
+        return nfa.getStateCount();
+    }
+
+    CharClasses getCharClasses() {
+        return nfa.getCharClasses();
+    }
+
+    int getStart() {
+        return nfa.getStart();
+    }
+
+    boolean isAccepting(int state) {
+        return nfa.isAccepting(state);
+    }
+
+    // Char and epsilon edges, as in NFA
+    int transitionsStart(int state) {
+        return nfa.transitionsStart(state);
+    }
+
+    int transitionsEnd(int state) {
+        return nfa.transitionsEnd(state);
+    }
+
+    int label(int edge) {
+        return nfa.label(edge);
+    }
+
+    int target(int edge) {
+        return nfa.target(edge);
+    }
+
+    int epsilonsStart(int state) {
+        return nfa.epsilonsStart(state);
+    }
+
+    int epsilonsEnd(int state) {
+        return nfa.epsilonsEnd(state);
+    }
+
+    int epsilonTarget(int edge) {
+        return nfa.epsilonTarget(edge);
+    }
+
+    // Count a thread carries from one state into the next: kept inside the
+    // same body, zero anywhere else
+    int carry(int from, int to, int count) {
+        return region[to] != NONE && region[to] == region[from] ? count : 0;
+    }
+
+    // Repetition whose iterations end in state, or -1
+    int getIterationEnd(int state) {
+        return iterationEnd[state];
+    }
+
+    int getBody(int repetition) {
+        return nfa.getRepetitionBody(repetition);
+    }
+
+    int getExit(int repetition) {
+        return nfa.getRepetitionExit(repetition);
+    }
+
+    int getMin(int repetition) {
+        return nfa.getRepetitionMin(repetition);
+    }
+
+    // -1 when unlimited
+    int getMax(int repetition) {
+        return nfa.getRepetitionMax(repetition);
+    }
+}
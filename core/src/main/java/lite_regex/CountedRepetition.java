@@ -0,0 +1,38 @@
+package lite_regex;
+
+// Attached to the state an iteration of a counted repetition ends in (see
+// NFABuilder.buildCountedRepetition). The child NFA exists once; a matcher
+// keeps the iteration count next to each thread and, on reaching this state,
+// loops back into the body while below max and leaves through exit once at
+// least min iterations are done. NFA.freeze turns it into an entry of the
+// NFA's repetition table.
+class CountedRepetition {
+    private final State body;
+    private final State exit;
+    private final int min;
+    private final Integer max;
+
+    CountedRepetition(State body, State exit, int min, Integer max) {
+        this.body = body;
+        this.exit = exit;
+        this.min = min;
+        this.max = max;
+    }
+
+    State getBody() {
+        return body;
+    }
+
+    State getExit() {
+        return exit;
+    }
+
+    int getMin() {
+        return min;
+    }
+
+    // Null means unlimited
+    Integer getMax() {
+        return max;
+    }
+}
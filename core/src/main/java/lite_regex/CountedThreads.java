@@ -0,0 +1,150 @@
+package lite_regex;
+
+import java.util.Arrays;
+
+// The ordered thread list of a CountingMatcher: each thread is an NFA state,
+// the iterations its counted repetition has done, and the position it
+// started at. Threads are found by hashing (state, count), so memory grows
+// with the threads alive at once rather than with the repetitions' bounds,
+// which may be in the billions. Like SparseSet it iterates in insertion
+// order; clear and truncate take time in the threads they drop.
+final class CountedThreads {
+    private static final long EMPTY = -1;
+    // Left by truncate: lookups probe past it and add may reuse it
+    private static final long REMOVED = -2;
+
+    private int[] states = new int[16];
+    private int[] counts = new int[16];
+    private int[] starts = new int[16];
+    private int size;
+    // Open addressing table of (state, count) keys, at most half full
+    // counting REMOVED slots, and the slot each thread's key is in
+    private long[] keys = emptyTable(32);
+    private int[] slotOf = new int[16];
+    // Slots set to REMOVED since the last clear
+    private int[] removed = new int[16];
+    private int removedCount;
+    private int occupied;
+    private int shift = Long.SIZE - 5;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int state(int index) {
+        return states[index];
+    }
+
+    int count(int index) {
+        return counts[index];
+    }
+
+    int start(int index) {
+        return starts[index];
+    }
+
+    void setStart(int index, int start) {
+        starts[index] = start;
+    }
+
+    // Adds the thread unless (state, count) is already in the list
+    boolean add(int state, int count, int start) {
+        long key = (long) state << 32 | count;
+        int mask = keys.length - 1;
+        int slot = slotFor(key);
+        int free = -1;
+        for (long k; (k = keys[slot]) != EMPTY; slot = (slot + 1) & mask) {
+            if (k == key) {
+                return false;
+            }
+            if (k == REMOVED && free < 0) {
+                free = slot;
+            }
+        }
+        if (free < 0) {
+            if (2 * (occupied + 1) > keys.length || size == states.length) {
+                grow();
+                return add(state, count, start);
+            }
+            free = slot;
+            occupied++;
+        } else if (size == states.length) {
+            grow();
+            return add(state, count, start);
+        }
+        keys[free] = key;
+        states[size] = state;
+        counts[size] = count;
+        starts[size] = start;
+        slotOf[size] = free;
+        size++;
+        return true;
+    }
+
+    // Keeps only the first newSize threads in insertion order
+    void truncate(int newSize) {
+        if (size - newSize > removed.length - removedCount) {
+            removed = Arrays.copyOf(removed, Math.max(2 * removed.length, removedCount + size - newSize));
+        }
+        for (int i = newSize; i < size; i++) {
+            keys[slotOf[i]] = REMOVED;
+            removed[removedCount++] = slotOf[i];
+        }
+        size = Math.min(size, newSize);
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            keys[slotOf[i]] = EMPTY;
+        }
+        for (int i = 0; i < removedCount; i++) {
+            keys[removed[i]] = EMPTY;
+        }
+        removedCount = 0;
+        occupied = 0;
+        size = 0;
+    }
+
+    // Rebuilds the table from the live threads, dropping REMOVED slots, and
+    // doubles whatever the threads have outgrown
+    private void grow() {
+        int capacity = size == states.length ? states.length * 2 : states.length;
+        states = Arrays.copyOf(states, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        slotOf = Arrays.copyOf(slotOf, capacity);
+        keys = emptyTable(Math.max(keys.length, 4 * Integer.highestOneBit(size + 1)));
+        shift = Long.SIZE - Integer.numberOfTrailingZeros(keys.length);
+        int mask = keys.length - 1;
+        for (int i = 0; i < size; i++) {
+            long key = (long) states[i] << 32 | counts[i];
+            int slot = slotFor(key);
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            slotOf[i] = slot;
+        }
+        removedCount = 0;
+        occupied = size;
+    }
+
+    // The count is scattered by Fibonacci hashing and the state added on,
+    // so the states a closure walks through one after another share cache
+    // lines
+    private int slotFor(long key) {
+        int count = (int) key;
+        int state = (int) (key >>> 32);
+        return (int) ((count * 0x9E3779B97F4A7C15L) >>> shift) + state & keys.length - 1;
+    }
+
+    private static long[] emptyTable(int length) {
+        long[] table = new long[length];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+}
@@ -0,0 +1,154 @@
+package lite_regex;
+
+import java.util.Arrays;
+
+// Pike VM over a CountedNFA. It works like NFAMatcher, except that a thread
+// is a configuration (state plus iteration count) and closures are followed
+// at match time, because the edges out of an iteration's end depend on the
+// count. Threads live in CountedThreads rather than a SparseSet over every
+// configuration, so the scratch space does not grow with the bounds. Not
+// thread-safe: use one matcher per thread.
+public class CountingMatcher extends PikeSearch {
+    private final CountedNFA nfa;
+    private CountedThreads current = new CountedThreads();
+    private CountedThreads next = new CountedThreads();
+    // Pending (state, count) pairs while following a closure
+    private int[] stack = new int[32];
+
+    public CountingMatcher(CountedNFA nfa) {
+        this.nfa = nfa;
+    }
+
+    public boolean matches(CharSequence text) {
+        CharClasses classes = nfa.getCharClasses();
+        current.clear();
+        addClosure(current, nfa.getStart(), 0, 0);
+
+        for (int i = 0; i < text.length(); i++) {
+            step(classes.classOf(text.charAt(i)));
+            if (current.isEmpty()) {
+                return false;
+            }
+        }
+        for (int i = 0; i < current.size(); i++) {
+            if (nfa.isAccepting(current.state(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    CharClasses charClasses() {
+        return nfa.getCharClasses();
+    }
+
+    @Override
+    void clearThreads() {
+        current.clear();
+    }
+
+    @Override
+    void addThread(int start) {
+        addClosure(current, nfa.getStart(), 0, start);
+    }
+
+    @Override
+    int acceptingStart() {
+        for (int i = 0; i < current.size(); i++) {
+            if (nfa.isAccepting(current.state(i))) {
+                int start = current.start(i);
+                int keep = i + 1;
+                while (keep < current.size() && current.start(keep) <= start) {
+                    keep++;
+                }
+                current.truncate(keep);
+                return start;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    boolean hasThreads() {
+        return !current.isEmpty();
+    }
+
+    @Override
+    int earliestStart() {
+        return current.isEmpty() ? -1 : current.start(0);
+    }
+
+    @Override
+    void shiftStarts(int delta) {
+        for (int i = 0; i < current.size(); i++) {
+            current.setStart(i, current.start(i) - delta);
+        }
+    }
+
+    @Override
+    void step(int classId) {
+        next.clear();
+        for (int i = 0; i < current.size(); i++) {
+            int state = current.state(i);
+            int count = current.count(i);
+            int end = nfa.transitionsEnd(state);
+            for (int edge = nfa.transitionsStart(state); edge < end && nfa.label(edge) <= classId; edge++) {
+                if (nfa.label(edge) == classId) {
+                    int target = nfa.target(edge);
+                    addClosure(next, target, nfa.carry(state, target, count), current.start(i));
+                }
+            }
+        }
+
+        CountedThreads swap = current;
+        current = next;
+        next = swap;
+        if (counters != null) {
+            counters.nfaSteps++;
+            counters.nfaActiveStates += current.size();
+        }
+    }
+
+    // Adds every configuration reachable from (state, count) over epsilons.
+    // Anything already in the set was added with an earlier or equal start,
+    // and so was everything reachable from it, so it is not followed again.
+    private void addClosure(CountedThreads set, int state, int count, int start) {
+        int top = push(0, state, count);
+        while (top > 0) {
+            top -= 2;
+            int from = stack[top];
+            int fromCount = stack[top + 1];
+            if (!set.add(from, fromCount, start)) {
+                continue;
+            }
+
+            int repetition = nfa.getIterationEnd(from);
+            if (repetition >= 0) {
+                int min = nfa.getMin(repetition);
+                int max = nfa.getMax(repetition);
+                int done = max >= 0 ? fromCount + 1 : Math.min(fromCount + 1, min);
+                if (max < 0 || done < max) {
+                    top = push(top, nfa.getBody(repetition), done);
+                }
+                if (done >= min) {
+                    top = push(top, nfa.getExit(repetition), 0);
+                }
+            } else {
+                for (int edge = nfa.epsilonsStart(from); edge < nfa.epsilonsEnd(from); edge++) {
+                    int target = nfa.epsilonTarget(edge);
+                    top = push(top, target, nfa.carry(from, target, fromCount));
+                }
+            }
+        }
+    }
+
+    private int push(int top, int state, int count) {
+        if (top + 2 > stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[top] = state;
+        stack[top + 1] = count;
+        return top + 2;
+    }
+}
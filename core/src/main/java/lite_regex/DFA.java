@@ -6,36 +6,55 @@ import java.util.Set;
 public class DFA {
     private final DFAState startState;
     private final Set<DFAState> acceptingStates;
-    private final Map<DFAState, Map<Character, DFAState>> transitionTable;
+    private final Map<DFAState, Map<Integer, DFAState>> transitionTable;
+    private final CharClasses charClasses;
     private final int minLength;
     private final Integer maxLength;
 
     public DFA(DFAState startState, 
               Set<DFAState> acceptingStates,
-              Map<DFAState, Map<Character, DFAState>> transitionTable,
-              int minLength, Integer maxLength) {
+              Map<DFAState, Map<Integer, DFAState>> transitionTable,
+              CharClasses charClasses, int minLength, Integer maxLength) {
         this.startState = startState;
         this.acceptingStates = acceptingStates;
         this.transitionTable = transitionTable;
+        this.charClasses = charClasses;
         this.minLength = minLength;
         this.maxLength = maxLength;
     }
 
-    public boolean matches(String input) {
+    public boolean matches(CharSequence input) {
         DFAState current = startState;
 
-        for (char c : input.toCharArray()) {
-            Map<Character, DFAState> transitions = transitionTable.get(current);
-            if (transitions == null || !transitions.containsKey(c)) {
+        for (int i = 0; i < input.length(); i++) {
+            int classId = charClasses.classOf(input.charAt(i));
+            Map<Integer, DFAState> transitions = transitionTable.get(current);
+            if (transitions == null || !transitions.containsKey(classId)) {
                 return false;  // ❌ dead end
             }
-            current = transitions.get(c);
+            current = transitions.get(classId);
         }
 
         return acceptingStates.contains(current);  // ✅ Only final state must be accepting
     }
 
 
+    DFAState getStartState() {
+        return startState;
+    }
+
+    Set<DFAState> getAcceptingStates() {
+        return acceptingStates;
+    }
+
+    Map<DFAState, Map<Integer, DFAState>> getTransitionTable() {
+        return transitionTable;
+    }
+
+    public CharClasses getCharClasses() {
+        return charClasses;
+    }
+
     public int getMinLength() {
         return minLength;
     }
@@ -0,0 +1,72 @@
+package lite_regex;
+
+import java.util.*;
+
+public class DFABuilder {
+    private final Map<StateSet, DFAState> stateCache = new HashMap<>();
+
+    public DFA build(NFA nfa) {
+        return build(nfa, Integer.MAX_VALUE);
+    }
+
+    // Returns null if the DFA would need more than maxStates states
+    public DFA build(NFA nfa, int maxStates) {
+        stateCache.clear();
+
+        Map<DFAState, Map<Integer, DFAState>> transitionTable = new HashMap<>();
+        Set<DFAState> acceptingStates = new HashSet<>();
+        Queue<DFAState> unprocessedStates = new ArrayDeque<>();
+        SubsetConstruction subsets = new SubsetConstruction(nfa);
+
+        DFAState startState = getCachedState(subsets.start(), nfa);
+        unprocessedStates.add(startState);
+
+        if (startState.isAccepting()) {
+            acceptingStates.add(startState);
+        }
+
+        BitSet alphabet = new BitSet();
+        while (!unprocessedStates.isEmpty()) {
+            DFAState current = unprocessedStates.poll();
+            Map<Integer, DFAState> transitions = transitionTable.computeIfAbsent(current, k -> new HashMap<>());
+
+            collectAlphabet(nfa, current.getNfaStates(), alphabet);
+            for (int classId = alphabet.nextSetBit(0); classId >= 0; classId = alphabet.nextSetBit(classId + 1)) {
+                StateSet closure = subsets.step(current.getNfaStates(), classId);
+                if (closure == null) continue;
+
+                int knownStates = stateCache.size();
+                DFAState target = getCachedState(closure, nfa);
+
+                transitions.put(classId, target);
+
+                // Queue each state once, when it is first discovered
+                if (stateCache.size() > knownStates) {
+                    if (stateCache.size() > maxStates) {
+                        return null;
+                    }
+                    unprocessedStates.add(target);
+                    if (target.isAccepting()) acceptingStates.add(target);
+                }
+            }
+        }
+
+        return new DFA(startState, acceptingStates, transitionTable,
+                nfa.getCharClasses(), nfa.getMinLength(), nfa.getMaxLength());
+    }
+
+    private DFAState getCachedState(StateSet nfaStates, NFA nfa) {
+        return stateCache.computeIfAbsent(nfaStates, k -> new DFAState(stateCache.size(), k, nfa));
+    }
+
+    // The classes some state in the set has an edge on
+    private static void collectAlphabet(NFA nfa, StateSet states, BitSet alphabet) {
+        alphabet.clear();
+        for (int i = 0; i < states.size(); i++) {
+            int state = states.get(i);
+            for (int edge = nfa.transitionsStart(state); edge < nfa.transitionsEnd(state); edge++) {
+                alphabet.set(nfa.label(edge));
+            }
+        }
+    }
+}
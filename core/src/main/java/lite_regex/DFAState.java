@@ -0,0 +1,71 @@
+package lite_regex;
+
+import java.util.Arrays;
+
+public class DFAState {
+    private static final int[] EMPTY = new int[0];
+
+    private final StateSet nfaStates;
+    private final int id;
+    private final boolean accepting;
+    private final int[] patternIds;
+
+    // Transitions discovered on demand by LazyDFA, indexed by class id
+    private DFAState[] transitions;
+
+    DFAState(int id, StateSet nfaStates, NFA nfa) {
+        this.nfaStates = nfaStates;
+        this.id = id;
+        int[] ids = new int[nfaStates.size()];
+        int count = 0;
+        for (int i = 0; i < nfaStates.size(); i++) {
+            if (nfa.isAccepting(nfaStates.get(i))) {
+                ids[count++] = nfa.getPatternId(nfaStates.get(i));
+            }
+        }
+        this.accepting = count > 0;
+        this.patternIds = accepting ? Arrays.stream(ids, 0, count).sorted().distinct().toArray() : EMPTY;
+    }
+
+    StateSet getNfaStates() {
+        return nfaStates;
+    }
+
+    public boolean isAccepting() {
+        return accepting;
+    }
+
+    // Sorted ids of the patterns whose accept states are in this set
+    int[] getPatternIds() {
+        return patternIds;
+    }
+
+    DFAState getCachedTransition(int classId) {
+        return transitions != null ? transitions[classId] : null;
+    }
+
+    void cacheTransition(int classId, DFAState target, int classCount) {
+        if (transitions == null) {
+            transitions = new DFAState[classCount];
+        }
+        transitions[classId] = target;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof DFAState)) return false;
+        DFAState other = (DFAState) obj;
+        return nfaStates.equals(other.nfaStates);
+    }
+
+    @Override
+    public int hashCode() {
+        return nfaStates.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "DFAState-" + id + nfaStates;
+    }
+}
@@ -0,0 +1,261 @@
+package lite_regex;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+// DFA flattened into a single int[] transition table. Rows are indexed by
+// state * classCount + charClass, and state ids are stored pre-multiplied by
+// classCount so the hot loop is one add and one array load per char. Row 0
+// is the dead state, which loops to itself on every class.
+public class DenseDFA {
+    private static final int DEAD = 0;
+
+    private final CharClasses classes;
+    private final int classCount;
+    private final int[] table;
+    private final long[] accepting;
+    private final int start;
+    private final int stateCount;
+    // State count of the subset-construction DFA this table was minimized from
+    private final int unminimizedStateCount;
+
+    private DenseDFA(CharClasses classes, int[] table, long[] accepting, int start, int stateCount,
+                     int unminimizedStateCount) {
+        this.classes = classes;
+        this.classCount = classes.getClassCount();
+        this.table = table;
+        this.accepting = accepting;
+        this.start = start;
+        this.stateCount = stateCount;
+        this.unminimizedStateCount = unminimizedStateCount;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(start);
+        out.writeInt(stateCount);
+        out.writeInt(unminimizedStateCount);
+        PatternArchive.writeInts(out, table);
+        PatternArchive.writeLongs(out, accepting);
+    }
+
+    static DenseDFA read(ByteBuffer in, CharClasses classes) {
+        int start = in.getInt();
+        int stateCount = in.getInt();
+        int unminimizedStateCount = in.getInt();
+        int[] table = PatternArchive.readInts(in);
+        long[] accepting = PatternArchive.readLongs(in);
+        return new DenseDFA(classes, table, accepting, start, stateCount, unminimizedStateCount);
+    }
+
+    public static DenseDFA compile(DFA dfa) {
+        Map<DFAState, Map<Integer, DFAState>> transitions = dfa.getTransitionTable();
+        CharClasses classes = dfa.getCharClasses();
+        int classCount = classes.getClassCount();
+
+        // Number states breadth-first from the start state; 0 is reserved for dead
+        Map<DFAState, Integer> ids = new HashMap<>();
+        List<DFAState> order = new ArrayList<>();
+        ids.put(dfa.getStartState(), 1);
+        order.add(dfa.getStartState());
+        for (int i = 0; i < order.size(); i++) {
+            Map<Integer, DFAState> row = transitions.getOrDefault(order.get(i), Collections.emptyMap());
+            for (DFAState target : row.values()) {
+                if (!ids.containsKey(target)) {
+                    ids.put(target, order.size() + 1);
+                    order.add(target);
+                }
+            }
+        }
+
+        int stateCount = order.size() + 1;
+        int[] table = new int[stateCount * classCount];
+        long[] accepting = new long[(stateCount + 63) >>> 6];
+        for (int i = 0; i < order.size(); i++) {
+            DFAState state = order.get(i);
+            int id = i + 1;
+            Map<Integer, DFAState> row = transitions.getOrDefault(state, Collections.emptyMap());
+            for (int cls = 0; cls < classCount; cls++) {
+                DFAState target = row.get(cls);
+                table[id * classCount + cls] = target == null ? DEAD : ids.get(target) * classCount;
+            }
+            if (dfa.getAcceptingStates().contains(state)) {
+                accepting[id >>> 6] |= 1L << id;
+            }
+        }
+
+        return new DenseDFA(classes, table, accepting, classCount, stateCount, stateCount);
+    }
+
+    // Merges equivalent states with Hopcroft's partition refinement. Blocks
+    // start as accepting / non-accepting and are split until every state in a
+    // block moves to the same block on every class. The dead state's block
+    // stays row 0, so a minimized table still stops early on dead input.
+    public DenseDFA minimize() {
+        int n = stateCount;
+
+        // Predecessors of each state on each class, grouped by (class, target)
+        int[] predStart = new int[classCount * n + 1];
+        for (int s = 0; s < n; s++) {
+            for (int cls = 0; cls < classCount; cls++) {
+                predStart[cls * n + table[s * classCount + cls] / classCount + 1]++;
+            }
+        }
+        for (int i = 0; i < classCount * n; i++) {
+            predStart[i + 1] += predStart[i];
+        }
+        int[] preds = new int[n * classCount];
+        int[] fill = Arrays.copyOf(predStart, classCount * n);
+        for (int s = 0; s < n; s++) {
+            for (int cls = 0; cls < classCount; cls++) {
+                preds[fill[cls * n + table[s * classCount + cls] / classCount]++] = s;
+            }
+        }
+
+        // Blocks are contiguous runs of elements; marked states are swapped to
+        // the front of their block
+        int[] elements = new int[n];
+        int[] location = new int[n];
+        int[] blockOf = new int[n];
+        int[] blockStart = new int[n + 1];
+        int[] blockEnd = new int[n + 1];
+        int[] markEnd = new int[n + 1];
+        int blockCount = 0;
+        int acceptingCount = 0;
+        for (int s = 0; s < n; s++) {
+            if (isAccepting(s)) acceptingCount++;
+        }
+        int nextAccepting = 0;
+        int nextRejecting = acceptingCount;
+        for (int s = 0; s < n; s++) {
+            int at = isAccepting(s) ? nextAccepting++ : nextRejecting++;
+            elements[at] = s;
+            location[s] = at;
+        }
+        for (int[] range : new int[][] {{0, acceptingCount}, {acceptingCount, n}}) {
+            if (range[0] < range[1]) {
+                blockStart[blockCount] = range[0];
+                blockEnd[blockCount] = range[1];
+                markEnd[blockCount] = range[0];
+                for (int i = range[0]; i < range[1]; i++) {
+                    blockOf[elements[i]] = blockCount;
+                }
+                blockCount++;
+            }
+        }
+
+        boolean[] pending = new boolean[n + 1];
+        ArrayDeque<Integer> work = new ArrayDeque<>();
+        for (int b = 0; b < blockCount; b++) {
+            work.add(b);
+            pending[b] = true;
+        }
+        int[] touched = new int[n];
+        while (!work.isEmpty()) {
+            int splitter = work.poll();
+            pending[splitter] = false;
+            int[] members = Arrays.copyOfRange(elements, blockStart[splitter], blockEnd[splitter]);
+            for (int cls = 0; cls < classCount; cls++) {
+                int touchedCount = 0;
+                for (int target : members) {
+                    for (int k = predStart[cls * n + target]; k < predStart[cls * n + target + 1]; k++) {
+                        int s = preds[k];
+                        int b = blockOf[s];
+                        if (markEnd[b] == blockStart[b]) {
+                            touched[touchedCount++] = b;
+                        }
+                        int i = location[s];
+                        if (i >= markEnd[b]) {
+                            int swap = elements[markEnd[b]];
+                            elements[i] = swap;
+                            location[swap] = i;
+                            elements[markEnd[b]] = s;
+                            location[s] = markEnd[b];
+                            markEnd[b]++;
+                        }
+                    }
+                }
+                for (int t = 0; t < touchedCount; t++) {
+                    int b = touched[t];
+                    if (markEnd[b] == blockEnd[b]) {
+                        markEnd[b] = blockStart[b];
+                        continue;
+                    }
+                    // The marked front of b becomes a new block
+                    int split = blockCount++;
+                    blockStart[split] = blockStart[b];
+                    blockEnd[split] = markEnd[b];
+                    markEnd[split] = blockStart[split];
+                    blockStart[b] = blockEnd[split];
+                    markEnd[b] = blockStart[b];
+                    for (int i = blockStart[split]; i < blockEnd[split]; i++) {
+                        blockOf[elements[i]] = split;
+                    }
+                    if (pending[b] || blockEnd[split] - blockStart[split] <= blockEnd[b] - blockStart[b]) {
+                        work.add(split);
+                        pending[split] = true;
+                    } else {
+                        work.add(b);
+                        pending[b] = true;
+                    }
+                }
+            }
+        }
+
+        // Renumber blocks: the dead state's block is 0, the rest in state order
+        int[] blockId = new int[blockCount];
+        Arrays.fill(blockId, -1);
+        blockId[blockOf[DEAD]] = 0;
+        int count = 1;
+        for (int s = 0; s < n; s++) {
+            if (blockId[blockOf[s]] < 0) {
+                blockId[blockOf[s]] = count++;
+            }
+        }
+        int[] minimized = new int[count * classCount];
+        long[] minAccepting = new long[(count + 63) >>> 6];
+        for (int s = 0; s < n; s++) {
+            int id = blockId[blockOf[s]];
+            for (int cls = 0; cls < classCount; cls++) {
+                minimized[id * classCount + cls] = blockId[blockOf[table[s * classCount + cls] / classCount]] * classCount;
+            }
+            if (isAccepting(s)) {
+                minAccepting[id >>> 6] |= 1L << id;
+            }
+        }
+        int minStart = blockId[blockOf[start / classCount]] * classCount;
+        return new DenseDFA(classes, minimized, minAccepting, minStart, count, unminimizedStateCount);
+    }
+
+    public boolean matches(CharSequence text) {
+        int state = start;
+        for (int i = 0; i < text.length(); i++) {
+            state = table[state + classes.classOf(text.charAt(i))];
+            if (state == DEAD) {
+                return false;
+            }
+        }
+        return isAccepting(state / classCount);
+    }
+
+    private boolean isAccepting(int id) {
+        return (accepting[id >>> 6] & (1L << id)) != 0;
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    public int getUnminimizedStateCount() {
+        return unminimizedStateCount;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public int getTableSize() {
+        return table.length;
+    }
+}
@@ -0,0 +1,21 @@
+package lite_regex;
+
+// A capturing group: (...) around child, numbered from 1 in the order of the
+// opening parentheses. (?:...) is parsed to its child alone.
+public class GroupNode extends RegexNode {
+    private final RegexNode child;
+    private final int index;
+
+    public GroupNode(RegexNode child, int index) {
+        this.child = child;
+        this.index = index;
+    }
+
+    public RegexNode getChild() { return child; }
+    public int getIndex() { return index; }
+
+    @Override
+    public String toString() {
+        return "Group(" + index + ", " + child + ")";
+    }
+}
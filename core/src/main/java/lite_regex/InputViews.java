@@ -0,0 +1,37 @@
+package lite_regex;
+
+import java.nio.ByteBuffer;
+
+// Presents char[] and byte regions to the engine as a CharSequence without
+// copying or allocating per call: one reusable view of each kind, moved to
+// the region being matched. Bytes read one char per byte, for the byte
+// automata of RegexEngine.bytes(). A view is only valid until clear(), which
+// callers run once the match returns so a thread's views never keep the last
+// array it matched alive. Not thread-safe: use one per thread.
+final class InputViews {
+    private final CharArraySequence chars = new CharArraySequence(null, 0, 0);
+    private final ByteArraySequence byteArray = new ByteArraySequence(null, 0, 0);
+    private final ByteCharSequence byteBuffer = new ByteCharSequence(null, 0, 0);
+
+    CharSequence chars(char[] array, int offset, int length) {
+        chars.reset(array, offset, length);
+        return chars;
+    }
+
+    CharSequence bytes(byte[] array, int offset, int length) {
+        byteArray.reset(array, offset, length);
+        return byteArray;
+    }
+
+    // The bytes between position and limit; the position is left unchanged
+    CharSequence bytes(ByteBuffer buffer) {
+        byteBuffer.reset(buffer, buffer.position(), buffer.remaining());
+        return byteBuffer;
+    }
+
+    void clear() {
+        chars.reset(null, 0, 0);
+        byteArray.reset(null, 0, 0);
+        byteBuffer.reset(null, 0, 0);
+    }
+}
@@ -0,0 +1,181 @@
+package lite_regex;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Builds DFA states on demand while scanning and caches them, so repeated
+// matching becomes table lookups. When the cache outgrows its budget it is
+// cleared; if that keeps happening within one call we give up and the caller
+// falls back to the NFA simulation. The cache makes an instance
+// single-threaded; each thread needs its own.
+public class LazyDFA {
+    public static final int NO_MATCH = 0;
+    public static final int MATCH = 1;
+    public static final int GAVE_UP = -1;
+
+    public static final long DEFAULT_CACHE_CAPACITY = 2L * 1024 * 1024;
+
+    // Resets allowed within a single call before giving up on the DFA
+    private static final int MAX_CACHE_RESETS = 3;
+
+    // Rough per-state cost: the DFAState and its transition row, plus its
+    // StateSet and the sorted ids in it
+    private static final int STATE_OVERHEAD_BYTES = 64 + 16 + 32;
+    private static final int NFA_STATE_BYTES = 4;
+
+    private final NFA nfa;
+    private final CharClasses classes;
+    private final long cacheCapacity;
+    private final SubsetConstruction subsets;
+    private final Map<StateSet, DFAState> cache = new HashMap<>();
+    private final DFAState deadState;
+    private DFAState startState;
+    private long cacheBytes;
+    private int cacheResets;
+    // Set only while the engine is timing a call with metrics enabled
+    MatchCounters counters;
+    private int scanResets;
+    private int nextStateId;
+
+    public LazyDFA(NFA nfa) {
+        this(nfa, DEFAULT_CACHE_CAPACITY);
+    }
+
+    public LazyDFA(NFA nfa, long cacheCapacity) {
+        this.nfa = nfa;
+        this.classes = nfa.getCharClasses();
+        this.cacheCapacity = cacheCapacity;
+        this.subsets = new SubsetConstruction(nfa);
+        this.deadState = new DFAState(-1, new StateSet(new int[0]), nfa);
+    }
+
+    public int matches(CharSequence text) {
+        scanResets = 0;
+        DFAState current = startState();
+
+        for (int i = 0; i < text.length(); i++) {
+            current = next(current, classes.classOf(text.charAt(i)));
+            if (current == null) {
+                return GAVE_UP;
+            }
+            if (current == deadState) {
+                return NO_MATCH;
+            }
+        }
+
+        return current.isAccepting() ? MATCH : NO_MATCH;
+    }
+
+    // For a union of several patterns (see NFA.union): the sorted ids of every
+    // pattern matching the whole text, or null if we gave up. The array is
+    // shared with the cache and must not be modified.
+    public int[] matchingPatterns(CharSequence text) {
+        scanResets = 0;
+        DFAState current = startState();
+
+        for (int i = 0; i < text.length() && current != deadState; i++) {
+            current = next(current, classes.classOf(text.charAt(i)));
+            if (current == null) {
+                return null;
+            }
+        }
+        return current.getPatternIds();
+    }
+
+    // Meant for a reversed NFA: scans text backwards from end down to limit and
+    // returns the smallest start such that text[start, end) is accepted. The
+    // caller must know some such start exists (end came from a forward search);
+    // GAVE_UP is returned if the cache kept overflowing.
+    public int matchStartBackward(CharSequence text, int end, int limit) {
+        scanResets = 0;
+        DFAState current = startState();
+        int start = current.isAccepting() ? end : GAVE_UP;
+
+        for (int i = end - 1; i >= limit; i--) {
+            current = next(current, classes.classOf(text.charAt(i)));
+            if (current == null) {
+                return GAVE_UP;
+            }
+            if (current == deadState) {
+                break;
+            }
+            if (current.isAccepting()) {
+                start = i;
+            }
+        }
+        return start;
+    }
+
+    public int getCachedStateCount() {
+        return cache.size();
+    }
+
+    public long getCacheBytes() {
+        return cacheBytes;
+    }
+
+    public int getCacheResets() {
+        return cacheResets;
+    }
+
+    private DFAState startState() {
+        if (startState == null) {
+            startState = intern(subsets.start());
+        }
+        return startState;
+    }
+
+    // Follows (or discovers) the transition; null means we gave up on this scan
+    private DFAState next(DFAState current, int classId) {
+        if (counters != null) {
+            counters.dfaTransitions++;
+        }
+        DFAState next = current.getCachedTransition(classId);
+        if (next == null) {
+            if (counters != null) {
+                counters.dfaMisses++;
+            }
+            if (cacheBytes > cacheCapacity) {
+                if (++scanResets > MAX_CACHE_RESETS) {
+                    return null;
+                }
+                current = resetCache(current);
+            }
+            next = computeTransition(current, classId);
+        }
+        return next;
+    }
+
+    private DFAState computeTransition(DFAState from, int classId) {
+        StateSet reached = subsets.step(from.getNfaStates(), classId);
+        DFAState target = reached == null ? deadState : intern(reached);
+        from.cacheTransition(classId, target, classes.getClassCount());
+        return target;
+    }
+
+    private DFAState intern(StateSet nfaStates) {
+        DFAState state = cache.get(nfaStates);
+        if (state == null) {
+            state = new DFAState(nextStateId++, nfaStates, nfa);
+            if (counters != null) {
+                counters.dfaStatesBuilt++;
+            }
+            cache.put(nfaStates, state);
+            cacheBytes += STATE_OVERHEAD_BYTES + 4L * classes.getClassCount()
+                    + (long) NFA_STATE_BYTES * nfaStates.size();
+        }
+        return state;
+    }
+
+    // Drops every cached state and re-creates the one we are currently in
+    private DFAState resetCache(DFAState current) {
+        cache.clear();
+        cacheBytes = 0;
+        cacheResets++;
+        if (counters != null) {
+            counters.dfaCacheResets++;
+        }
+        startState = null;
+        return intern(current.getNfaStates());
+    }
+}
@@ -0,0 +1,26 @@
+package lite_regex;
+
+// Plain tallies the automata keep while they run. An engine's matchers and
+// DFAs for one thread share a single instance, which the engine clears and
+// hands them for a timed call and adds into its PatternMetrics after it; the
+// rest of the time they hold null and count nothing. Only ever touched by
+// the thread that owns the automata, so nothing here is synchronized.
+final class MatchCounters {
+    // Pike VM steps, and the active states summed over those steps
+    long nfaSteps;
+    long nfaActiveStates;
+    // Lazy DFA transitions taken, and how many of them had to be computed
+    long dfaTransitions;
+    long dfaMisses;
+    long dfaStatesBuilt;
+    long dfaCacheResets;
+
+    void clear() {
+        nfaSteps = 0;
+        nfaActiveStates = 0;
+        dfaTransitions = 0;
+        dfaMisses = 0;
+        dfaStatesBuilt = 0;
+        dfaCacheResets = 0;
+    }
+}
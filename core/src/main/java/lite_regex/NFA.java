@@ -0,0 +1,315 @@
+package lite_regex;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+// A finished NFA, frozen into flat arrays once NFABuilder is done with it.
+// States are numbered 0..n-1. The char edges of state s are the entries
+// transitionStart[s] up to transitionStart[s + 1] of labels and targets,
+// sorted by class id (each one a run of chars in the CharClasses partition);
+// its epsilon edges are laid out the same way in epsilonStart and
+// epsilonTargets. A dozen int arrays per NFA instead of a map and a set per
+// state, immutable, so one instance serves every thread.
+public class NFA {
+    private static final int[] NONE = new int[0];
+    // Ints per counted repetition: the state its iterations end in, the
+    // start of its body, its exit, min and max (-1 when unlimited)
+    private static final int REPETITION_INTS = 5;
+
+    private final CharClasses charClasses;
+    private final int minLength;
+    private final Integer maxLength;
+    private final int start;
+    // -1 for a union of several NFAs
+    private final int accept;
+    // For a union, each state's pattern id if it accepts and -1 if not; null otherwise
+    private final int[] patternIds;
+    private final int[] transitionStart;
+    private final int[] labels;
+    private final int[] targets;
+    private final int[] epsilonStart;
+    private final int[] epsilonTargets;
+    private final int[] repetitions;
+
+    private NFA(CharClasses charClasses, int minLength, Integer maxLength, int start, int accept,
+                int[] patternIds, int[] transitionStart, int[] labels, int[] targets,
+                int[] epsilonStart, int[] epsilonTargets, int[] repetitions) {
+        this.charClasses = charClasses;
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+        this.start = start;
+        this.accept = accept;
+        this.patternIds = patternIds;
+        this.transitionStart = transitionStart;
+        this.labels = labels;
+        this.targets = targets;
+        this.epsilonStart = epsilonStart;
+        this.epsilonTargets = epsilonTargets;
+        this.repetitions = repetitions;
+    }
+
+    // Numbers the states reachable from start, start first, and copies their
+    // edges out. A null accept means a union of several NFAs: the accepting
+    // states are the ones flagged so, each tagged with its pattern id (see
+    // NFABuilder.buildUnion).
+    static NFA freeze(State start, State accept, CharClasses charClasses, int minLength, Integer maxLength) {
+        Map<State, Integer> ids = new HashMap<>();
+        List<State> states = new ArrayList<>();
+        number(start, ids, states);
+        if (accept != null) {
+            // Numbered even when nothing reaches it, as in a pattern like []
+            number(accept, ids, states);
+        }
+        int transitionCount = 0;
+        int epsilonCount = 0;
+        int repetitionCount = 0;
+        for (int i = 0; i < states.size(); i++) {
+            State state = states.get(i);
+            for (int k = 0; k < state.getTransitionCount(); k++) {
+                number(state.getTransitionTarget(k), ids, states);
+            }
+            for (int k = 0; k < state.getEpsilonCount(); k++) {
+                number(state.getEpsilonTransition(k), ids, states);
+            }
+            CountedRepetition repetition = state.getRepetition();
+            if (repetition != null) {
+                number(repetition.getBody(), ids, states);
+                number(repetition.getExit(), ids, states);
+                repetitionCount++;
+            }
+            transitionCount += state.getTransitionCount();
+            epsilonCount += state.getEpsilonCount();
+        }
+
+        int n = states.size();
+        int[] patternIds = accept == null ? new int[n] : null;
+        int[] transitionStart = new int[n + 1];
+        int[] labels = new int[transitionCount];
+        int[] targets = new int[transitionCount];
+        int[] epsilonStart = new int[n + 1];
+        int[] epsilonTargets = new int[epsilonCount];
+        int[] repetitions = new int[REPETITION_INTS * repetitionCount];
+        int t = 0;
+        int e = 0;
+        int r = 0;
+        for (int i = 0; i < n; i++) {
+            State state = states.get(i);
+            if (patternIds != null) {
+                patternIds[i] = state.isAccepting() ? state.getPatternId() : -1;
+            }
+            // Sorted by class id, then target
+            long[] edges = new long[state.getTransitionCount()];
+            for (int k = 0; k < edges.length; k++) {
+                edges[k] = (long) state.getTransitionLabel(k) << 32 | ids.get(state.getTransitionTarget(k));
+            }
+            Arrays.sort(edges);
+            transitionStart[i] = t;
+            for (long edge : edges) {
+                labels[t] = (int) (edge >>> 32);
+                targets[t++] = (int) edge;
+            }
+            epsilonStart[i] = e;
+            for (int k = 0; k < state.getEpsilonCount(); k++) {
+                epsilonTargets[e++] = ids.get(state.getEpsilonTransition(k));
+            }
+            CountedRepetition repetition = state.getRepetition();
+            if (repetition != null) {
+                repetitions[r++] = i;
+                repetitions[r++] = ids.get(repetition.getBody());
+                repetitions[r++] = ids.get(repetition.getExit());
+                repetitions[r++] = repetition.getMin();
+                repetitions[r++] = repetition.getMax() != null ? repetition.getMax() : -1;
+            }
+        }
+        transitionStart[n] = t;
+        epsilonStart[n] = e;
+        return new NFA(charClasses, minLength, maxLength, 0, accept != null ? ids.get(accept) : -1,
+                patternIds, transitionStart, labels, targets, epsilonStart, epsilonTargets, repetitions);
+    }
+
+    private static void number(State state, Map<State, Integer> ids, List<State> states) {
+        if (!ids.containsKey(state)) {
+            ids.put(state, states.size());
+            states.add(state);
+        }
+    }
+
+    public int getStateCount() {
+        return transitionStart.length - 1;
+    }
+
+    int getStart() {
+        return start;
+    }
+
+    boolean isAccepting(int state) {
+        return patternIds != null ? patternIds[state] >= 0 : state == accept;
+    }
+
+    // Which pattern an accepting state belongs to in a union
+    int getPatternId(int state) {
+        return patternIds != null ? patternIds[state] : 0;
+    }
+
+    // The char edges of state are the indices transitionsStart(state) up to
+    // transitionsEnd(state), in class id order
+    int transitionsStart(int state) {
+        return transitionStart[state];
+    }
+
+    int transitionsEnd(int state) {
+        return transitionStart[state + 1];
+    }
+
+    int label(int edge) {
+        return labels[edge];
+    }
+
+    int target(int edge) {
+        return targets[edge];
+    }
+
+    int epsilonsStart(int state) {
+        return epsilonStart[state];
+    }
+
+    int epsilonsEnd(int state) {
+        return epsilonStart[state + 1];
+    }
+
+    int epsilonTarget(int edge) {
+        return epsilonTargets[edge];
+    }
+
+    int getRepetitionCount() {
+        return repetitions.length / REPETITION_INTS;
+    }
+
+    // The state the iterations of a counted repetition end in
+    int getRepetitionState(int repetition) {
+        return repetitions[REPETITION_INTS * repetition];
+    }
+
+    int getRepetitionBody(int repetition) {
+        return repetitions[REPETITION_INTS * repetition + 1];
+    }
+
+    int getRepetitionExit(int repetition) {
+        return repetitions[REPETITION_INTS * repetition + 2];
+    }
+
+    int getRepetitionMin(int repetition) {
+        return repetitions[REPETITION_INTS * repetition + 3];
+    }
+
+    // -1 when unlimited
+    int getRepetitionMax(int repetition) {
+        return repetitions[REPETITION_INTS * repetition + 4];
+    }
+
+    // Transitions are labelled with class ids from this partition
+    public CharClasses getCharClasses() {
+        return charClasses;
+    }
+
+    public int getMinLength() {
+        return minLength;
+    }
+
+    public Integer getMaxLength() {
+        return maxLength;
+    }
+
+    // The arrays as they are, so read() is a handful of bulk copies
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(minLength);
+        out.writeInt(maxLength != null ? maxLength : -1);
+        out.writeInt(start);
+        out.writeInt(accept);
+        PatternArchive.writeInts(out, patternIds != null ? patternIds : NONE);
+        PatternArchive.writeInts(out, transitionStart);
+        PatternArchive.writeInts(out, labels);
+        PatternArchive.writeInts(out, targets);
+        PatternArchive.writeInts(out, epsilonStart);
+        PatternArchive.writeInts(out, epsilonTargets);
+        PatternArchive.writeInts(out, repetitions);
+    }
+
+    static NFA read(ByteBuffer in, CharClasses charClasses) {
+        int minLength = in.getInt();
+        int max = in.getInt();
+        Integer maxLength = max >= 0 ? Integer.valueOf(max) : null;
+        int start = in.getInt();
+        int accept = in.getInt();
+        int[] patternIds = PatternArchive.readInts(in);
+        int[] transitionStart = PatternArchive.readInts(in);
+        int[] labels = PatternArchive.readInts(in);
+        int[] targets = PatternArchive.readInts(in);
+        int[] epsilonStart = PatternArchive.readInts(in);
+        int[] epsilonTargets = PatternArchive.readInts(in);
+        int[] repetitions = PatternArchive.readInts(in);
+        return new NFA(charClasses, minLength, maxLength, start, accept, accept < 0 ? patternIds : null,
+                transitionStart, labels, targets, epsilonStart, epsilonTargets, repetitions);
+    }
+
+    // Builds the NFA for the reversed language by flipping every edge. The
+    // result reads text right to left, which is how match starts are found.
+    // States keep their numbers. Only for single NFAs without counted
+    // repetitions, which have nothing to flip them into.
+    public NFA reverse() {
+        int n = getStateCount();
+        int[] reversedTransitionStart = new int[n + 1];
+        int[] reversedLabels = new int[labels.length];
+        int[] reversedTargets = new int[targets.length];
+        flip(transitionStart, labels, targets, reversedTransitionStart, reversedLabels, reversedTargets);
+        int[] reversedEpsilonStart = new int[n + 1];
+        int[] reversedEpsilonTargets = new int[epsilonTargets.length];
+        flip(epsilonStart, null, epsilonTargets, reversedEpsilonStart, null, reversedEpsilonTargets);
+        return new NFA(charClasses, minLength, maxLength, accept, start, null, reversedTransitionStart,
+                reversedLabels, reversedTargets, reversedEpsilonStart, reversedEpsilonTargets, NONE);
+    }
+
+    // Regroups the edges by target, each becoming an edge back to its source;
+    // labels may be null for epsilon edges. Flipped char edges are sorted by
+    // label as usual.
+    private static void flip(int[] starts, int[] labels, int[] targets,
+                             int[] flippedStarts, int[] flippedLabels, int[] flippedTargets) {
+        int n = starts.length - 1;
+        for (int target : targets) {
+            flippedStarts[target + 1]++;
+        }
+        for (int s = 0; s < n; s++) {
+            flippedStarts[s + 1] += flippedStarts[s];
+        }
+        int[] fill = Arrays.copyOf(flippedStarts, n);
+        for (int s = 0; s < n; s++) {
+            for (int edge = starts[s]; edge < starts[s + 1]; edge++) {
+                int slot = fill[targets[edge]]++;
+                flippedTargets[slot] = s;
+                if (labels != null) {
+                    flippedLabels[slot] = labels[edge];
+                }
+            }
+        }
+        if (labels == null) {
+            return;
+        }
+        for (int s = 0; s < n; s++) {
+            int from = flippedStarts[s];
+            if (flippedStarts[s + 1] - from < 2) {
+                continue;
+            }
+            long[] edges = new long[flippedStarts[s + 1] - from];
+            for (int k = 0; k < edges.length; k++) {
+                edges[k] = (long) flippedLabels[from + k] << 32 | flippedTargets[from + k];
+            }
+            Arrays.sort(edges);
+            for (int k = 0; k < edges.length; k++) {
+                flippedLabels[from + k] = (int) (edges[k] >>> 32);
+                flippedTargets[from + k] = (int) edges[k];
+            }
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package lite_regex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class NFABuilder {
+    // Repetitions whose copies would take more NFA states than this are
+    // built with a counter instead. Copies keep the pattern on the DFAs,
+    // which are far faster than the counting Pike VM, so a small body (a
+    // single class above all) is copied even for a bound in the thousands;
+    // the counter only keeps the NFA from growing without limit.
+    static final int COUNTED_REPETITION_THRESHOLD = 4096;
+
+    private final CharClasses classes;
+    private final boolean countedRepetition;
+    // Ids are per builder, so separate compilations never share a counter
+    private int nextStateId;
+    private boolean insideCountedRepetition;
+    private boolean usedCountedRepetition;
+
+    public NFABuilder(CharClasses classes) {
+        this(classes, true);
+    }
+
+    // Without counted repetition every NFA is a plain Thompson NFA that the
+    // DFA builders can handle
+    public NFABuilder(CharClasses classes, boolean countedRepetition) {
+        this.classes = classes;
+        this.countedRepetition = countedRepetition;
+    }
+
+    // True once some repetition was built with a counter; such an NFA can
+    // only be run by CountingMatcher
+    public boolean usedCountedRepetition() {
+        return usedCountedRepetition;
+    }
+
+    // One NFA running every pattern at once, each accept state tagged with
+    // its pattern's index (see RegexSet)
+    public NFA buildUnion(List<RegexNode> nodes) {
+        State start = newState();
+        int minLength = Integer.MAX_VALUE;
+        Integer maxLength = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            Fragment fragment = fragment(nodes.get(i));
+            fragment.getAcceptState().setPatternId(i);
+            start.addEpsilonTransition(fragment.getStartState());
+            minLength = Math.min(minLength, fragment.getMinLength());
+            maxLength = maxLength != null && fragment.getMaxLength() != null
+                    ? Integer.valueOf(Math.max(maxLength, fragment.getMaxLength())) : null;
+        }
+        return NFA.freeze(start, null, classes, nodes.isEmpty() ? 0 : minLength, maxLength);
+    }
+
+    public NFA build(RegexNode node) {
+        Fragment fragment = fragment(node);
+        return NFA.freeze(fragment.getStartState(), fragment.getAcceptState(), classes,
+                fragment.getMinLength(), fragment.getMaxLength());
+    }
+
+    private Fragment fragment(RegexNode node) {
+        try {
+            // Single-char matchers (literals, '.', \w, \d, [...]) all become class ranges
+            char[] ranges = CharClasses.rangesOf(node);
+            if (ranges != null) {
+                return buildCharRanges(ranges);
+            } else if (node instanceof ConcatenationNode) {
+                return buildConcatenationNode((ConcatenationNode) node);
+            } else if (node instanceof AlternationNode) {
+                return buildAlternationNode((AlternationNode) node);
+            } else if (node instanceof RepetitionNode) {
+                return buildRepetitionNode((RepetitionNode) node);
+            } else if (node instanceof QuantifierNode) {
+                return buildQuantifierNode((QuantifierNode) node);
+            } else if (node instanceof GroupNode) {
+                // Groups only matter when extracting captures (see CaptureProgram)
+                return fragment(((GroupNode) node).getChild());
+            } else {
+                throw new IllegalArgumentException("Unsupported regex node type: " + 
+                    (node != null ? node.getClass().getName() : "null"));
+            }
+        } catch (Exception e) {
+            throw new RegexException("Failed to build NFA", 
+                                   0, "", 
+                                   "Error processing node: " + e.getMessage());
+        }
+    }
+
+    private Fragment buildQuantifierNode(QuantifierNode node) {
+        // {0} builds no copies at all, and a counter would enter the body
+        if (countedRepetition && !insideCountedRepetition && !isZero(node)
+                && estimateStates(node) > COUNTED_REPETITION_THRESHOLD) {
+            return buildCountedRepetition(node);
+        }
+        if (node.isExact()) {
+            return buildExactCount(node);
+        }
+        return buildRangeQuantifier(node);
+    }
+
+    private Fragment buildExactCount(QuantifierNode node) {
+        State start = newState();
+        State current = start;
+        Fragment next = null;
+
+        for (int i = 0; i < node.getMin(); i++) {
+            next = fragment(node.getChild());
+
+            // Remove old accepting state
+            next.getAcceptState().setAccepting(false);
+
+            current.addEpsilonTransition(next.getStartState());
+            current = next.getAcceptState();
+        }
+
+        State accept = newState();
+        accept.setAccepting(true);  // <== ONLY ONE accepting state
+        current.addEpsilonTransition(accept);
+
+        int childMin = next != null ? next.getMinLength() : 0;
+        Integer childMax = next != null ? next.getMaxLength() : Integer.valueOf(0);
+        return new Fragment(start, accept, repeatedMin(node.getMin(), childMin),
+                repeatedMax(node.getMin(), childMax));
+    }
+
+    // One copy of the child whose accept state leads to a counting state
+    // instead of one copy per iteration. Repetitions nested inside it are
+    // copied, so a thread never has to track more than one count.
+    private Fragment buildCountedRepetition(QuantifierNode node) {
+        State start = newState();
+        State accept = newState();
+        State iterationEnd = newState();
+
+        insideCountedRepetition = true;
+        Fragment child;
+        try {
+            child = fragment(node.getChild());
+        } finally {
+            insideCountedRepetition = false;
+        }
+        child.getAcceptState().setAccepting(false);
+        child.getAcceptState().addEpsilonTransition(iterationEnd);
+        iterationEnd.setRepetition(
+                new CountedRepetition(child.getStartState(), accept, node.getMin(), node.getMax()));
+
+        start.addEpsilonTransition(child.getStartState());
+        if (node.getMin() == 0) {
+            start.addEpsilonTransition(accept);
+        }
+        usedCountedRepetition = true;
+        return new Fragment(start, accept, repeatedMin(node.getMin(), child.getMinLength()),
+                repeatedMax(node.getMax(), child.getMaxLength()));
+    }
+
+    private static boolean isZero(QuantifierNode node) {
+        return node.getMax() != null && node.getMax() == 0;
+    }
+
+    // Roughly how many states fragment would build for node if every
+    // repetition were copied, capped at Integer.MAX_VALUE
+    private static long estimateStates(RegexNode node) {
+        long states;
+        if (CharClasses.rangesOf(node) != null) {
+            states = 2;
+        } else if (node instanceof ConcatenationNode) {
+            ConcatenationNode concatenation = (ConcatenationNode) node;
+            states = estimateStates(concatenation.getLeft()) + estimateStates(concatenation.getRight());
+        } else if (node instanceof AlternationNode) {
+            AlternationNode alternation = (AlternationNode) node;
+            states = estimateStates(alternation.getLeft()) + estimateStates(alternation.getRight()) + 2;
+        } else if (node instanceof RepetitionNode) {
+            states = estimateStates(((RepetitionNode) node).getChild()) + 2;
+        } else if (node instanceof QuantifierNode) {
+            QuantifierNode quantifier = (QuantifierNode) node;
+            // {n,} copies its child n + 1 times
+            long copies = quantifier.getMax() != null ? quantifier.getMax() : quantifier.getMin() + 1L;
+            states = Math.max(1, copies) * estimateStates(quantifier.getChild()) + 2;
+        } else if (node instanceof GroupNode) {
+            states = estimateStates(((GroupNode) node).getChild());
+        } else {
+            states = 2;
+        }
+        return Math.min(states, Integer.MAX_VALUE);
+    }
+
+    // Length bounds of a child repeated count times
+    private static int repeatedMin(int count, int childMin) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) count * childMin);
+    }
+
+    private static Integer repeatedMax(Integer count, Integer childMax) {
+        if (count != null && count == 0) {
+            return 0;
+        }
+        if (count == null || childMax == null || (long) count * childMax > Integer.MAX_VALUE) {
+            return null;
+        }
+        return count * childMax;
+    }
+
+
+
+    private Fragment buildRangeQuantifier(QuantifierNode node) {
+        State start = newState();
+        State current = start;
+        Fragment child = null;
+
+        // Handle minimum repetitions (always required)
+        for (int i = 0; i < node.getMin(); i++) {
+            Fragment next = fragment(node.getChild());
+            child = next;
+            next.getAcceptState().setAccepting(false);
+            current.addEpsilonTransition(next.getStartState());
+            current = next.getAcceptState();
+        }
+
+        State accept = newState();
+        accept.setAccepting(true);
+
+        if (node.getMax() != null) {
+            // Finite case {n,m}
+            State optionalStart = current;
+            for (int i = node.getMin(); i < node.getMax(); i++) {
+                Fragment optional = fragment(node.getChild());
+                child = optional;
+                optional.getAcceptState().setAccepting(false);
+                optionalStart.addEpsilonTransition(optional.getStartState());
+                optionalStart.addEpsilonTransition(accept); // Early exit path
+                optionalStart = optional.getAcceptState();
+            }
+            optionalStart.addEpsilonTransition(accept);
+        } else {
+            // Unlimited case {n,}
+            Fragment loop = fragment(node.getChild());
+            child = loop;
+            loop.getAcceptState().setAccepting(false);
+            
+            // Connect current state to both:
+            // 1. The accept state (to allow matching just the minimum)
+            current.addEpsilonTransition(accept);
+            
+            // 2. The loop start (to allow additional matches)
+            current.addEpsilonTransition(loop.getStartState());
+            
+            // Connect the loop end back to itself to allow repeating
+            loop.getAcceptState().addEpsilonTransition(loop.getStartState());
+            
+            // Connect the loop end to the accept state
+            loop.getAcceptState().addEpsilonTransition(accept);
+        }
+
+        // Every range quantifier builds at least one copy of its child
+        return new Fragment(start, accept, repeatedMin(node.getMin(), child.getMinLength()),
+                repeatedMax(node.getMax(), child.getMaxLength()));
+    }
+
+    private Fragment buildCharRanges(char[] ranges) {
+        State start = newState();
+        State accept = newState();
+        // Boundaries line up with the ranges, so each range is a run of whole classes
+        for (int i = 0; i < ranges.length; i += 2) {
+            int last = classes.classOf(ranges[i + 1]);
+            for (int classId = classes.classOf(ranges[i]); classId <= last; classId++) {
+                start.addTransition(classId, accept);
+            }
+        }
+        return new Fragment(start, accept, 1, 1);
+    }
+
+    private Fragment buildConcatenationNode(ConcatenationNode node) {
+        Fragment leftNFA = fragment(node.getLeft());
+        Fragment rightNFA = fragment(node.getRight());
+        leftNFA.getAcceptState().addEpsilonTransition(rightNFA.getStartState());
+        leftNFA.getAcceptState().setAccepting(false);
+        
+        // Calculate combined length constraints, saturating like repeatedMin
+        // and repeatedMax since counted repetitions can make either huge
+        int min = (int) Math.min(Integer.MAX_VALUE, (long) leftNFA.getMinLength() + rightNFA.getMinLength());
+        Integer max = null;
+        if (leftNFA.getMaxLength() != null && rightNFA.getMaxLength() != null
+                && (long) leftNFA.getMaxLength() + rightNFA.getMaxLength() <= Integer.MAX_VALUE) {
+            max = leftNFA.getMaxLength() + rightNFA.getMaxLength();
+        }
+        return new Fragment(leftNFA.getStartState(), rightNFA.getAcceptState(), min, max);
+    }
+
+    private Fragment buildAlternationNode(AlternationNode node) {
+        Fragment leftNFA = fragment(node.getLeft());
+        Fragment rightNFA = fragment(node.getRight());
+        State start = newState();
+        State accept = newState();
+        start.addEpsilonTransition(leftNFA.getStartState());
+        start.addEpsilonTransition(rightNFA.getStartState());
+        leftNFA.getAcceptState().addEpsilonTransition(accept);
+        rightNFA.getAcceptState().addEpsilonTransition(accept);
+        leftNFA.getAcceptState().setAccepting(false);
+        rightNFA.getAcceptState().setAccepting(false);
+        
+        // Calculate length constraints for alternation
+        int min = Math.min(leftNFA.getMinLength(), rightNFA.getMinLength());
+        Integer max = null;
+        if (leftNFA.getMaxLength() != null && rightNFA.getMaxLength() != null) {
+            max = Math.max(leftNFA.getMaxLength(), rightNFA.getMaxLength());
+        }
+        return new Fragment(start, accept, min, max);
+    }
+
+    private Fragment buildRepetitionNode(RepetitionNode node) {
+        Fragment childNFA = fragment(node.getChild());
+        State start = newState();
+        State accept = newState();
+        start.addEpsilonTransition(childNFA.getStartState());
+        childNFA.getAcceptState().addEpsilonTransition(accept);
+        childNFA.getAcceptState().setAccepting(false);
+
+        int min = 0;
+        Integer max = null;
+        
+        switch (node.getOperator()) {
+            case '*':
+                start.addEpsilonTransition(accept);
+                childNFA.getAcceptState().addEpsilonTransition(childNFA.getStartState());
+                min = 0;
+                max = null;
+                break;
+            case '+':
+                childNFA.getAcceptState().addEpsilonTransition(childNFA.getStartState());
+                min = childNFA.getMinLength();
+                max = null;
+                break;
+            case '?':
+                start.addEpsilonTransition(accept);
+                min = 0;
+                max = childNFA.getMaxLength();
+                break;
+        }
+        
+        return new Fragment(start, accept, min, max);
+    }
+
+    private State newState() {
+        return new State(nextStateId++);
+    }
+
+    // A piece of the NFA still being built: its start and accept states and
+    // the lengths of what it matches
+    private static final class Fragment {
+        private final State startState;
+        private final State acceptState;
+        private final int minLength;
+        private final Integer maxLength;
+
+        Fragment(State startState, State acceptState, int minLength, Integer maxLength) {
+            this.startState = startState;
+            this.acceptState = acceptState;
+            this.minLength = minLength;
+            this.maxLength = maxLength;
+            acceptState.setAccepting(true);
+        }
+
+        State getStartState() {
+            return startState;
+        }
+
+        State getAcceptState() {
+            return acceptState;
+        }
+
+        int getMinLength() {
+            return minLength;
+        }
+
+        Integer getMaxLength() {
+            return maxLength;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package lite_regex;
+
+import java.util.Arrays;
+
+// Pike VM style NFA simulation over a CompiledNFA. The active states live in
+// two reusable sparse sets that are swapped after every char, and epsilon
+// closures are precomputed, so a match allocates nothing and runs in
+// O(text length * NFA size). Not thread-safe: use one matcher per thread.
+public class NFAMatcher extends PikeSearch {
+    private final CompiledNFA nfa;
+    private SparseSet current;
+    private SparseSet next;
+    // Start position of the thread occupying each active state (used by search)
+    private int[] currentStarts;
+    private int[] nextStarts;
+    // Targets whose closure was already added during the current step
+    private final SparseSet expanded;
+
+    public NFAMatcher(NFA nfa) {
+        this(CompiledNFA.compile(nfa));
+    }
+
+    public NFAMatcher(CompiledNFA nfa) {
+        this.nfa = nfa;
+        int size = nfa.getStateCount();
+        this.current = new SparseSet(size);
+        this.next = new SparseSet(size);
+        this.currentStarts = new int[size];
+        this.nextStarts = new int[size];
+        this.expanded = new SparseSet(size);
+    }
+
+    public boolean matches(CharSequence text) {
+        CharClasses classes = nfa.getCharClasses();
+        current.clear();
+        addClosure(current, currentStarts, nfa.getStart(), 0);
+
+        for (int i = 0; i < text.length(); i++) {
+            step(classes.classOf(text.charAt(i)));
+
+            if (current.isEmpty()) {
+                return false; // No valid transitions
+            }
+        }
+
+        // Check if any current state is an accepting state
+        for (int i = 0; i < current.size(); i++) {
+            if (nfa.isAccepting(current.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // For a union of several patterns: the sorted ids of every pattern that
+    // matches the whole text
+    public int[] matchingPatterns(CharSequence text) {
+        CharClasses classes = nfa.getCharClasses();
+        current.clear();
+        addClosure(current, currentStarts, nfa.getStart(), 0);
+
+        for (int i = 0; i < text.length() && !current.isEmpty(); i++) {
+            step(classes.classOf(text.charAt(i)));
+        }
+
+        int[] ids = new int[current.size()];
+        int count = 0;
+        for (int i = 0; i < current.size(); i++) {
+            if (nfa.isAccepting(current.get(i))) {
+                ids[count++] = nfa.getPatternId(current.get(i));
+            }
+        }
+        return Arrays.stream(ids, 0, count).sorted().distinct().toArray();
+    }
+
+    @Override
+    CharClasses charClasses() {
+        return nfa.getCharClasses();
+    }
+
+    @Override
+    void clearThreads() {
+        current.clear();
+    }
+
+    @Override
+    void addThread(int start) {
+        addClosure(current, currentStarts, nfa.getStart(), start);
+    }
+
+    @Override
+    int acceptingStart() {
+        for (int i = 0; i < current.size(); i++) {
+            int state = current.get(i);
+            if (nfa.isAccepting(state)) {
+                int start = currentStarts[state];
+                int keep = i + 1;
+                while (keep < current.size() && currentStarts[current.get(keep)] <= start) {
+                    keep++;
+                }
+                current.truncate(keep);
+                return start;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    boolean hasThreads() {
+        return !current.isEmpty();
+    }
+
+    @Override
+    int earliestStart() {
+        return current.isEmpty() ? -1 : currentStarts[current.get(0)];
+    }
+
+    @Override
+    void shiftStarts(int delta) {
+        for (int i = 0; i < current.size(); i++) {
+            currentStarts[current.get(i)] -= delta;
+        }
+    }
+
+    @Override
+    void step(int classId) {
+        next.clear();
+        expanded.clear();
+
+        for (int i = 0; i < current.size(); i++) {
+            int state = current.get(i);
+            int end = nfa.transitionsEnd(state);
+            // Labels are sorted, so stop once we are past the class
+            for (int edge = nfa.transitionsStart(state); edge < end && nfa.label(edge) <= classId; edge++) {
+                if (nfa.label(edge) == classId && expanded.add(nfa.target(edge))) {
+                    addClosure(next, nextStarts, nfa.target(edge), currentStarts[state]);
+                }
+            }
+        }
+
+        SparseSet swap = current;
+        current = next;
+        next = swap;
+        int[] swapStarts = currentStarts;
+        currentStarts = nextStarts;
+        nextStarts = swapStarts;
+        if (counters != null) {
+            counters.nfaSteps++;
+            counters.nfaActiveStates += current.size();
+        }
+    }
+
+    private void addClosure(SparseSet set, int[] starts, int state, int start) {
+        int end = nfa.closureEnd(state);
+        for (int index = nfa.closureStart(state); index < end; index++) {
+            int reached = nfa.closure(index);
+            if (set.add(reached)) {
+                starts[reached] = start;
+            }
+        }
+    }
+}
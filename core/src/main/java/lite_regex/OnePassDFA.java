@@ -0,0 +1,164 @@
+package lite_regex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Captures in a single pass with no thread list, for programs where the next
+// char always decides which instruction consumes it, such as (\w+)=(\d+) or
+// (a+)(b+). A state is the instruction after a consumed char; its transition
+// for each class gives the next state and the slots to set on the way, so a
+// char costs one table lookup. Immutable, so one instance serves every thread.
+final class OnePassDFA {
+    // Above this many table entries the Pike VM and backtracker are used instead
+    private static final int MAX_TABLE_SIZE = 1 << 16;
+
+    private final CharClasses classes;
+    private final int classCount;
+    private final int slotCount;
+    // next[state * classCount + classId] is the next state, or -1 to fail
+    private final int[] next;
+    // Index into saves of the slots a transition sets to the current position
+    private final int[] actions;
+    // Index into saves of the slots set when a state ends the match, or -1 if
+    // it cannot end one
+    private final int[] matchActions;
+    private final int[][] saves;
+
+    private OnePassDFA(CharClasses classes, int slotCount, int[] next, int[] actions,
+                       int[] matchActions, int[][] saves) {
+        this.classes = classes;
+        this.classCount = classes.getClassCount();
+        this.slotCount = slotCount;
+        this.next = next;
+        this.actions = actions;
+        this.matchActions = matchActions;
+        this.saves = saves;
+    }
+
+    // Null if some char could be consumed by two different instructions at
+    // once, which would need the priority order of a backtracker or Pike VM,
+    // or if the program has loops, whose counts a state cannot hold
+    static OnePassDFA build(CaptureProgram program) {
+        if (program.hasLoops()) {
+            return null;
+        }
+        int classCount = program.getCharClasses().getClassCount();
+        Map<Integer, Integer> stateOf = new HashMap<>();
+        List<Integer> roots = new ArrayList<>();
+        stateOf.put(0, 0);
+        roots.add(0);
+
+        Map<List<Integer>, Integer> saveIds = new HashMap<>();
+        List<int[]> saves = new ArrayList<>();
+        int[] next = new int[0];
+        int[] actions = new int[0];
+        int[] matchActions = new int[0];
+
+        ArrayDeque<Object[]> pending = new ArrayDeque<>();
+        SparseSet visited = new SparseSet(program.size());
+        for (int state = 0; state < roots.size(); state++) {
+            if ((long) (state + 1) * classCount > MAX_TABLE_SIZE) {
+                return null;
+            }
+            next = Arrays.copyOf(next, (state + 1) * classCount);
+            actions = Arrays.copyOf(actions, (state + 1) * classCount);
+            matchActions = Arrays.copyOf(matchActions, state + 1);
+            Arrays.fill(next, state * classCount, (state + 1) * classCount, -1);
+            matchActions[state] = -1;
+
+            // Walk the epsilon closure in priority order, as the Pike VM adds
+            // threads; a pc reached again by a later path is skipped
+            visited.clear();
+            pending.push(new Object[] {roots.get(state), List.of()});
+            while (!pending.isEmpty()) {
+                Object[] item = pending.pop();
+                int pc = (Integer) item[0];
+                @SuppressWarnings("unchecked")
+                List<Integer> path = (List<Integer>) item[1];
+                if (!visited.add(pc)) {
+                    continue;
+                }
+                switch (program.op(pc)) {
+                    case CaptureProgram.CHAR:
+                        Integer target = stateOf.get(pc + 1);
+                        if (target == null) {
+                            target = roots.size();
+                            stateOf.put(pc + 1, target);
+                            roots.add(pc + 1);
+                        }
+                        int action = saveId(path, saveIds, saves);
+                        int[] pairs = program.ranges(pc);
+                        for (int i = 0; i < pairs.length; i += 2) {
+                            for (int classId = pairs[i]; classId <= pairs[i + 1]; classId++) {
+                                int index = state * classCount + classId;
+                                if (next[index] >= 0) {
+                                    return null;
+                                }
+                                next[index] = target;
+                                actions[index] = action;
+                            }
+                        }
+                        break;
+                    case CaptureProgram.SPLIT:
+                        pending.push(new Object[] {program.alternate(pc), path});
+                        pending.push(new Object[] {program.arg(pc), path});
+                        break;
+                    case CaptureProgram.JUMP:
+                        pending.push(new Object[] {program.arg(pc), path});
+                        break;
+                    case CaptureProgram.SAVE:
+                        List<Integer> extended = new ArrayList<>(path);
+                        extended.add(program.arg(pc));
+                        pending.push(new Object[] {pc + 1, extended});
+                        break;
+                    default:
+                        if (matchActions[state] < 0) {
+                            matchActions[state] = saveId(path, saveIds, saves);
+                        }
+                }
+            }
+        }
+        return new OnePassDFA(program.getCharClasses(), program.getSlotCount(), next, actions,
+                matchActions, saves.toArray(new int[0][]));
+    }
+
+    private static int saveId(List<Integer> path, Map<List<Integer>, Integer> saveIds, List<int[]> saves) {
+        Integer id = saveIds.get(path);
+        if (id == null) {
+            id = saves.size();
+            saveIds.put(path, id);
+            saves.add(path.stream().mapToInt(Integer::intValue).toArray());
+        }
+        return id;
+    }
+
+    // Slots of the match spanning exactly [start, end), or null if there is none
+    int[] capture(CharSequence text, int start, int end) {
+        int[] slots = new int[slotCount];
+        Arrays.fill(slots, -1);
+        int state = 0;
+        for (int i = start; i < end; i++) {
+            int index = state * classCount + classes.classOf(text.charAt(i));
+            state = next[index];
+            if (state < 0) {
+                return null;
+            }
+            for (int slot : saves[actions[index]]) {
+                slots[slot] = i;
+            }
+        }
+        if (matchActions[state] < 0) {
+            return null;
+        }
+        for (int slot : saves[matchActions[state]]) {
+            slots[slot] = end;
+        }
+        slots[0] = start;
+        slots[1] = end;
+        return slots;
+    }
+}
@@ -0,0 +1,218 @@
+package lite_regex;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Searches one large memory-mapped file on a ForkJoinPool. The file is cut
+// into chunks, a few per worker, and each chunk is searched by its own task
+// with the engine's compiled automaton; the calling thread then reports the
+// results in file order, so listeners see exactly what a sequential scan
+// would report and are only ever called from that one thread.
+//
+// grep() cuts chunks at line breaks, so no line is shared between two chunks.
+// findAll() cuts anywhere: a chunk's matches must start inside it but may run
+// on into the text after it, and where the previous chunk's last match ends
+// past the boundary the chunk is searched again from there until the search
+// meets a match the chunk's task already found.
+public class ParallelSearch {
+    private static final long MIN_CHUNK_SIZE = 1L << 20;
+    private static final long MAX_CHUNK_SIZE = 1L << 30;
+    private static final int CHUNKS_PER_WORKER = 4;
+    // How far past its end a chunk's view reaches for an unbounded pattern,
+    // which also caps how long a match that crosses a boundary can be
+    private static final long MAX_VIEW_SIZE = Integer.MAX_VALUE - 1;
+
+    private ParallelSearch() {
+    }
+
+    // Same results as RegexGrep.scan
+    public static long grep(RegexEngine engine, Path file, ForkJoinPool pool,
+                            RegexGrep.LineListener listener) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long chunkSize = chunkSize(size, pool);
+            List<ForkJoinTask<LineChunk>> tasks = new ArrayList<>();
+            long start = 0;
+            while (start < size) {
+                long end = lineStart(channel, start + chunkSize, start + MAX_CHUNK_SIZE, size);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                long offset = start;
+                tasks.add(pool.submit(() -> LineChunk.scan(engine, buffer, offset)));
+                start = end;
+            }
+
+            long lineNumber = 1;
+            long matched = 0;
+            for (ForkJoinTask<LineChunk> task : tasks) {
+                LineChunk chunk = task.join();
+                ByteCharSequence line = new ByteCharSequence(chunk.buffer);
+                for (int i = 0; i < chunk.count; i += 3) {
+                    line.reset(chunk.matches[i + 1], chunk.matches[i + 2]);
+                    listener.onLine(lineNumber + chunk.matches[i], chunk.offset + line.offset(), line);
+                    matched++;
+                }
+                lineNumber += chunk.lines;
+            }
+            return matched;
+        }
+    }
+
+    // Same matches as RegexEngine.findAll over the file's UTF-8 bytes, with
+    // byte offsets. Returns how many there were.
+    public static long findAll(RegexEngine engine, Path file, ForkJoinPool pool,
+                               StreamMatcher.MatchListener listener) throws IOException {
+        RegexEngine bytes = engine.bytes();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long chunkSize = chunkSize(size, pool);
+            // Enough text past the chunk for any match that starts inside it
+            long overlap = bytes.getMaxLength() != null ? bytes.getMaxLength() : MAX_VIEW_SIZE;
+            List<ForkJoinTask<MatchChunk>> tasks = new ArrayList<>();
+            long start = 0;
+            do {
+                long end = Math.min(size, start + chunkSize);
+                long viewEnd = Math.min(size, end + Math.min(overlap, MAX_VIEW_SIZE - (end - start)));
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, viewEnd - start);
+                // The last chunk also owns an empty match at the very end
+                int startLimit = (int) (end - start) + (end == size ? 1 : 0);
+                long offset = start;
+                tasks.add(pool.submit(() -> MatchChunk.scan(bytes, buffer, offset, startLimit)));
+                start = end;
+            } while (start < size);
+
+            long from = 0;
+            long found = 0;
+            for (ForkJoinTask<MatchChunk> task : tasks) {
+                MatchChunk chunk = task.join();
+                int next = 0;
+                // The previous match ran into this chunk, so re-search from its end
+                int rel = (int) (from - chunk.offset);
+                while (rel > 0) {
+                    RegexMatch match = rel < chunk.startLimit
+                            ? bytes.find(chunk.text, rel, chunk.startLimit) : null;
+                    if (match == null) {
+                        next = chunk.count;
+                        break;
+                    }
+                    while (next < chunk.count && chunk.matches[next] < match.start()) {
+                        next += 2;
+                    }
+                    if (next < chunk.count && chunk.matches[next] == match.start()
+                            && chunk.matches[next + 1] == match.end()) {
+                        break; // back in step with the chunk's own matches
+                    }
+                    listener.onMatch(chunk.offset + match.start(), chunk.offset + match.end());
+                    found++;
+                    rel = match.end() > match.start() ? match.end() : match.end() + 1;
+                    from = chunk.offset + rel;
+                }
+                for (int i = next; i < chunk.count; i += 2) {
+                    int matchStart = chunk.matches[i];
+                    int matchEnd = chunk.matches[i + 1];
+                    listener.onMatch(chunk.offset + matchStart, chunk.offset + matchEnd);
+                    found++;
+                    from = chunk.offset + (matchEnd > matchStart ? matchEnd : matchEnd + 1);
+                }
+            }
+            return found;
+        }
+    }
+
+    private static long chunkSize(long size, ForkJoinPool pool) {
+        long perWorker = size / ((long) pool.getParallelism() * CHUNKS_PER_WORKER);
+        return Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, perWorker));
+    }
+
+    // Start of the first line at or after from, or limit if none starts before
+    // it (splitting that line), or size
+    private static long lineStart(FileChannel channel, long from, long limit, long size) throws IOException {
+        if (from >= size) {
+            return size;
+        }
+        ByteBuffer block = ByteBuffer.allocate(1 << 16);
+        long position = from - 1;
+        while (position < Math.min(limit, size)) {
+            block.clear();
+            int read = channel.read(block, position);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (block.get(i) == '\n') {
+                    return Math.min(limit, position + i + 1);
+                }
+            }
+            position += read;
+        }
+        return Math.min(limit, size);
+    }
+
+    // The matching lines of one chunk, as (line index, offset, length) triples
+    private static final class LineChunk {
+        final MappedByteBuffer buffer;
+        final long offset;
+        int[] matches = new int[48];
+        int count;
+        int lines;
+
+        private LineChunk(MappedByteBuffer buffer, long offset) {
+            this.buffer = buffer;
+            this.offset = offset;
+        }
+
+        static LineChunk scan(RegexEngine engine, MappedByteBuffer buffer, long offset) {
+            LineChunk chunk = new LineChunk(buffer, offset);
+            chunk.lines = RegexGrep.scanLines(engine, buffer, 0, 0, (index, lineOffset, line) -> {
+                if (chunk.count + 3 > chunk.matches.length) {
+                    chunk.matches = Arrays.copyOf(chunk.matches, chunk.matches.length * 2);
+                }
+                chunk.matches[chunk.count++] = (int) index;
+                chunk.matches[chunk.count++] = (int) lineOffset;
+                chunk.matches[chunk.count++] = line.length();
+            });
+            return chunk;
+        }
+    }
+
+    // The matches starting in one chunk, as (start, end) pairs relative to it
+    private static final class MatchChunk {
+        final ByteCharSequence text;
+        final long offset;
+        final int startLimit;
+        int[] matches = new int[32];
+        int count;
+
+        private MatchChunk(MappedByteBuffer buffer, long offset, int startLimit) {
+            this.text = new ByteCharSequence(buffer);
+            this.offset = offset;
+            this.startLimit = startLimit;
+        }
+
+        static MatchChunk scan(RegexEngine engine, MappedByteBuffer buffer, long offset, int startLimit) {
+            MatchChunk chunk = new MatchChunk(buffer, offset, startLimit);
+            int from = 0;
+            while (from < startLimit) {
+                RegexMatch match = engine.find(chunk.text, from, startLimit);
+                if (match == null) {
+                    break;
+                }
+                if (chunk.count + 2 > chunk.matches.length) {
+                    chunk.matches = Arrays.copyOf(chunk.matches, chunk.matches.length * 2);
+                }
+                chunk.matches[chunk.count++] = match.start();
+                chunk.matches[chunk.count++] = match.end();
+                from = match.end() > match.start() ? match.end() : match.end() + 1;
+            }
+            return chunk;
+        }
+    }
+}
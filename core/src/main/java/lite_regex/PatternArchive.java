@@ -0,0 +1,201 @@
+package lite_regex;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Compiled patterns saved ahead of time, so a process can load them instead
+// of running the lexer, parser, NFA and DFA construction at startup. Build
+// an archive with write() (or main, from a file of patterns, one per line)
+// and open it with open(), which memory-maps it; each pattern is decoded
+// only when load() asks for it.
+//
+// Layout, big-endian: the magic "LRXA", the format version, the pattern
+// count, then one absolute offset (a long) per pattern followed by the
+// records. A record holds the pattern text, its group count, its char
+// classes, the NFA's edge arrays, the prefilter literals and, when the
+// pattern has them, the Aho-Corasick double array and the minimized dense
+// DFA table, all as flat arrays. Any change to what a record holds must bump FORMAT_VERSION.
+public class PatternArchive {
+    private static final int MAGIC = 0x4C525841;
+    static final int FORMAT_VERSION = 4;
+    private static final int HEADER_BYTES = 12;
+
+    private final ByteBuffer buffer;
+    private final long[] offsets;
+
+    private PatternArchive(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a pattern archive");
+        }
+        int version = buffer.getInt(4);
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Pattern archive has format version " + version
+                    + ", expected " + FORMAT_VERSION);
+        }
+        this.offsets = new long[buffer.getInt(8)];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = buffer.getLong(HEADER_BYTES + 8 * i);
+        }
+    }
+
+    public static void write(List<RegexEngine> engines, Path file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            write(engines, out);
+        }
+    }
+
+    public static void write(List<RegexEngine> engines, OutputStream out) throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        for (RegexEngine engine : engines) {
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            engine.parts().write(new DataOutputStream(record));
+            records.add(record.toByteArray());
+        }
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        data.writeInt(records.size());
+        long offset = HEADER_BYTES + 8L * records.size();
+        for (byte[] record : records) {
+            data.writeLong(offset);
+            offset += record.length;
+        }
+        for (byte[] record : records) {
+            data.write(record);
+        }
+        data.flush();
+    }
+
+    // Maps the archive read-only. The mapping stays valid after the file is closed.
+    public static PatternArchive open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new PatternArchive(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // An archive already in memory, from the buffer's position on
+    public static PatternArchive read(ByteBuffer buffer) throws IOException {
+        return new PatternArchive(buffer.slice());
+    }
+
+    public int size() {
+        return offsets.length;
+    }
+
+    public String getPattern(int index) {
+        return readString(record(index));
+    }
+
+    // Decodes the index-th pattern into a new engine. Safe to call from
+    // several threads at once.
+    public RegexEngine load(int index) {
+        return new RegexEngine(PatternParts.read(record(index)), LazyDFA.DEFAULT_CACHE_CAPACITY);
+    }
+
+    public List<RegexEngine> loadAll() {
+        List<RegexEngine> engines = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            engines.add(load(i));
+        }
+        return engines;
+    }
+
+    private ByteBuffer record(int index) {
+        if (index < 0 || index >= offsets.length) {
+            throw new IndexOutOfBoundsException("Pattern " + index + " outside archive of " + offsets.length);
+        }
+        // Each reader gets its own position
+        ByteBuffer record = buffer.duplicate();
+        record.position((int) offsets[index]);
+        return record;
+    }
+
+    // Arrays and strings are stored as an int length followed by the elements
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        writeChars(out, value.toCharArray());
+    }
+
+    static void writeChars(DataOutputStream out, char[] values) throws IOException {
+        out.writeInt(values.length);
+        for (char value : values) {
+            out.writeChar(value);
+        }
+    }
+
+    static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    static void writeLongs(DataOutputStream out, long[] values) throws IOException {
+        out.writeInt(values.length);
+        for (long value : values) {
+            out.writeLong(value);
+        }
+    }
+
+    static String readString(ByteBuffer in) {
+        return new String(readChars(in));
+    }
+
+    static char[] readChars(ByteBuffer in) {
+        char[] values = new char[in.getInt()];
+        in.asCharBuffer().get(values);
+        in.position(in.position() + 2 * values.length);
+        return values;
+    }
+
+    static int[] readInts(ByteBuffer in) {
+        int[] values = new int[in.getInt()];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + 4 * values.length);
+        return values;
+    }
+
+    static long[] readLongs(ByteBuffer in) {
+        long[] values = new long[in.getInt()];
+        in.asLongBuffer().get(values);
+        in.position(in.position() + 8 * values.length);
+        return values;
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: PatternArchive <pattern file, one per line> <archive>");
+            System.exit(2);
+        }
+        try {
+            List<String> patterns = Files.readAllLines(Paths.get(args[0]), StandardCharsets.UTF_8);
+            List<RegexEngine> engines = new ArrayList<>();
+            for (int i = 0; i < patterns.size(); i++) {
+                try {
+                    engines.add(new RegexEngine(patterns.get(i)));
+                } catch (RegexException e) {
+                    System.err.println(args[0] + ":" + (i + 1) + ": " + e.getMessage());
+                    System.exit(2);
+                }
+            }
+            write(engines, Paths.get(args[1]));
+            System.out.println("Wrote " + engines.size() + " patterns to " + args[1]);
+        } catch (IOException e) {
+            System.err.println("PatternArchive: " + e.getMessage());
+            System.exit(2);
+        }
+    }
+}
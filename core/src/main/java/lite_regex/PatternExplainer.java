@@ -2,7 +2,7 @@ package lite_regex;
 import java.util.*;
 
 //5. PATTERN EXPLANATION GENERATOR
-class PatternExplainer {
+public class PatternExplainer {
  public static String explain(String pattern) {
      StringBuilder explanation = new StringBuilder();
      explanation.append("Pattern Explanation for: ").append(pattern).append("\n\n");
@@ -0,0 +1,245 @@
+package lite_regex;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Running totals for one compiled pattern, recorded while
+// RegexMetrics.isEnabled(). Calls and time are counted per matches() and
+// find() call; the automaton counters are summed over the calls, so the
+// averages say how much work a typical char costs. Call times also go into
+// a latency histogram of power-of-two buckets, so slow outliers show up where
+// the average would hide them. LongAdder keeps threads sharing the engine
+// from contending on the counters.
+public class PatternMetrics implements PatternMetricsMXBean {
+    // Bucket i counts calls that took [2^i, 2^(i+1)) ns; the last one also
+    // takes everything slower (2^40 ns is about 18 minutes)
+    public static final int LATENCY_BUCKETS = 40;
+
+    private final String pattern;
+    private final int denseDfaStates;
+    private final int unminimizedDfaStates;
+
+    private final LongAdder matchCount = new LongAdder();
+    private final LongAdder findCount = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder nfaSteps = new LongAdder();
+    private final LongAdder nfaActiveStates = new LongAdder();
+    private final LongAdder dfaTransitions = new LongAdder();
+    private final LongAdder dfaMisses = new LongAdder();
+    private final LongAdder dfaStatesBuilt = new LongAdder();
+    private final LongAdder dfaCacheResets = new LongAdder();
+    private final LongAdder nfaFallbacks = new LongAdder();
+    // Allocated on the first recorded call, since most engines never record one
+    private volatile LongAdder[] latency;
+
+    PatternMetrics(String pattern, DenseDFA denseDfa) {
+        this.pattern = pattern;
+        this.denseDfaStates = denseDfa != null ? denseDfa.getStateCount() : 0;
+        this.unminimizedDfaStates = denseDfa != null ? denseDfa.getUnminimizedStateCount() : 0;
+    }
+
+    void record(boolean find, long nanos, MatchCounters counters) {
+        (find ? findCount : matchCount).increment();
+        totalNanos.add(nanos);
+        latency()[bucketOf(nanos)].increment();
+        if (counters == null) {
+            return;
+        }
+        if (counters.nfaSteps > 0) {
+            nfaSteps.add(counters.nfaSteps);
+            nfaActiveStates.add(counters.nfaActiveStates);
+        }
+        if (counters.dfaTransitions > 0) {
+            dfaTransitions.add(counters.dfaTransitions);
+            dfaMisses.add(counters.dfaMisses);
+            dfaStatesBuilt.add(counters.dfaStatesBuilt);
+            dfaCacheResets.add(counters.dfaCacheResets);
+        }
+    }
+
+    // A lazy DFA gave up and the call was finished by the Pike VM
+    void recordFallback() {
+        nfaFallbacks.increment();
+    }
+
+    private static int bucketOf(long nanos) {
+        return Math.min(LATENCY_BUCKETS - 1, 63 - Long.numberOfLeadingZeros(Math.max(1, nanos)));
+    }
+
+    private LongAdder[] latency() {
+        LongAdder[] buckets = latency;
+        if (buckets == null) {
+            synchronized (this) {
+                buckets = latency;
+                if (buckets == null) {
+                    buckets = new LongAdder[LATENCY_BUCKETS];
+                    for (int i = 0; i < LATENCY_BUCKETS; i++) {
+                        buckets[i] = new LongAdder();
+                    }
+                    latency = buckets;
+                }
+            }
+        }
+        return buckets;
+    }
+
+    @Override
+    public String getPattern() {
+        return pattern;
+    }
+
+    @Override
+    public long getMatchCount() {
+        return matchCount.sum();
+    }
+
+    @Override
+    public long getFindCount() {
+        return findCount.sum();
+    }
+
+    @Override
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    @Override
+    public double getAverageNanos() {
+        long calls = getMatchCount() + getFindCount();
+        return calls == 0 ? 0 : (double) getTotalNanos() / calls;
+    }
+
+    // Calls per latency bucket (see LATENCY_BUCKETS)
+    @Override
+    public long[] getLatencyHistogram() {
+        long[] counts = new long[LATENCY_BUCKETS];
+        LongAdder[] buckets = latency;
+        if (buckets != null) {
+            for (int i = 0; i < LATENCY_BUCKETS; i++) {
+                counts[i] = buckets[i].sum();
+            }
+        }
+        return counts;
+    }
+
+    // A bound on the time within which the given fraction of calls finished:
+    // the end of the bucket that fraction reaches, or 0 before any call.
+    // Buckets double in width, so it is at most twice the true percentile.
+    public long getLatencyPercentileNanos(double fraction) {
+        if (!(fraction >= 0 && fraction <= 1)) {
+            throw new IllegalArgumentException("Fraction " + fraction + " is not between 0 and 1");
+        }
+        long[] counts = getLatencyHistogram();
+        long calls = 0;
+        for (long count : counts) {
+            calls += count;
+        }
+        if (calls == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * calls));
+        long seen = 0;
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return 1L << (i + 1);
+            }
+        }
+        return 1L << LATENCY_BUCKETS;
+    }
+
+    @Override
+    public long getMedianLatencyNanos() {
+        return getLatencyPercentileNanos(0.5);
+    }
+
+    @Override
+    public long get99thPercentileLatencyNanos() {
+        return getLatencyPercentileNanos(0.99);
+    }
+
+    @Override
+    public long get999thPercentileLatencyNanos() {
+        return getLatencyPercentileNanos(0.999);
+    }
+
+    @Override
+    public long getNfaSteps() {
+        return nfaSteps.sum();
+    }
+
+    // How many NFA states a Pike VM step touches on average
+    @Override
+    public double getAverageActiveNfaStates() {
+        long steps = nfaSteps.sum();
+        return steps == 0 ? 0 : (double) nfaActiveStates.sum() / steps;
+    }
+
+    @Override
+    public long getDfaTransitions() {
+        return dfaTransitions.sum();
+    }
+
+    // Share of lazy DFA transitions found in the cache rather than computed
+    @Override
+    public double getDfaCacheHitRate() {
+        long transitions = dfaTransitions.sum();
+        return transitions == 0 ? 0 : 1 - (double) dfaMisses.sum() / transitions;
+    }
+
+    @Override
+    public long getDfaStatesBuilt() {
+        return dfaStatesBuilt.sum();
+    }
+
+    @Override
+    public long getDfaCacheResets() {
+        return dfaCacheResets.sum();
+    }
+
+    @Override
+    public long getNfaFallbacks() {
+        return nfaFallbacks.sum();
+    }
+
+    // Size of the minimized dense DFA, or 0 if the pattern did not get one
+    @Override
+    public int getDenseDfaStates() {
+        return denseDfaStates;
+    }
+
+    // States DFABuilder's subset construction produced before minimization
+    @Override
+    public int getUnminimizedDfaStates() {
+        return unminimizedDfaStates;
+    }
+
+    @Override
+    public void reset() {
+        matchCount.reset();
+        findCount.reset();
+        totalNanos.reset();
+        nfaSteps.reset();
+        nfaActiveStates.reset();
+        dfaTransitions.reset();
+        dfaMisses.reset();
+        dfaStatesBuilt.reset();
+        dfaCacheResets.reset();
+        nfaFallbacks.reset();
+        LongAdder[] buckets = latency;
+        if (buckets != null) {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d matches, %d finds, avg %.0f ns, p50 < %d ns, p99 < %d ns, "
+                        + "%.1f active NFA states/step, "
+                        + "DFA hit rate %.3f, %d DFA states built, %d resets, %d NFA fallbacks",
+                pattern, getMatchCount(), getFindCount(), getAverageNanos(), getMedianLatencyNanos(),
+                get99thPercentileLatencyNanos(), getAverageActiveNfaStates(),
+                getDfaCacheHitRate(), getDfaStatesBuilt(), getDfaCacheResets(), getNfaFallbacks());
+    }
+}
@@ -0,0 +1,42 @@
+package lite_regex;
+
+// The JMX view of one pattern's PatternMetrics (see RegexMetricsJmx.register)
+public interface PatternMetricsMXBean {
+    String getPattern();
+
+    long getMatchCount();
+
+    long getFindCount();
+
+    long getTotalNanos();
+
+    double getAverageNanos();
+
+    long[] getLatencyHistogram();
+
+    long getMedianLatencyNanos();
+
+    long get99thPercentileLatencyNanos();
+
+    long get999thPercentileLatencyNanos();
+
+    long getNfaSteps();
+
+    double getAverageActiveNfaStates();
+
+    long getDfaTransitions();
+
+    double getDfaCacheHitRate();
+
+    long getDfaStatesBuilt();
+
+    long getDfaCacheResets();
+
+    long getNfaFallbacks();
+
+    int getDenseDfaStates();
+
+    int getUnminimizedDfaStates();
+
+    void reset();
+}
@@ -0,0 +1,122 @@
+package lite_regex;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+// What compiling a pattern produces before an engine is set up around it:
+// the NFA plus the structures derived from the AST or too costly to rebuild
+// (the minimized dense DFA above all). This is what a PatternArchive stores.
+final class PatternParts {
+    // Patterns whose full DFA stays this small are compiled to a dense table
+    private static final int DENSE_DFA_MAX_STATES = 256;
+
+    private static final int HAS_LITERALS = 1;
+    private static final int HAS_DENSE_DFA = 2;
+    private static final int COUNTED_REPETITION = 4;
+    private static final int UTF8 = 8;
+
+    final String pattern;
+    // The automata run on UTF-8 bytes rather than UTF-16 chars
+    final boolean utf8;
+    // Capturing groups, known from parsing so no CaptureProgram is needed
+    final int groupCount;
+    final NFA nfa;
+    // The NFA has counters, so it can only be run by CountingMatcher
+    final boolean countedRepetition;
+    final Prefilter prefilter;
+    // Set when the pattern is just an alternation of literals
+    final AhoCorasick literals;
+    final DenseDFA denseDfa;
+
+    PatternParts(String pattern, boolean utf8, int groupCount, NFA nfa, boolean countedRepetition,
+                 Prefilter prefilter, AhoCorasick literals, DenseDFA denseDfa) {
+        this.pattern = pattern;
+        this.utf8 = utf8;
+        this.groupCount = groupCount;
+        this.nfa = nfa;
+        this.countedRepetition = countedRepetition;
+        this.prefilter = prefilter;
+        this.literals = literals;
+        this.denseDfa = denseDfa;
+    }
+
+    static PatternParts compile(String pattern) {
+        return compile(pattern, false);
+    }
+
+    // With utf8 every char the automata read is one byte of UTF-8 input
+    static PatternParts compile(String pattern, boolean utf8) {
+        try {
+            // Lexical analysis
+            lexer lexer = new lexer(pattern);
+            List<RegexToken> tokens = lexer.tokenize();
+
+            // Parsing
+            parser parser = new parser(tokens, pattern);
+            RegexNode ast = lower(parser.parse(), utf8);
+            if (parser.getGroupCount() > 0) {
+                // Fail now rather than when a match's groups are first read
+                CaptureProgram.checkSize(ast, pattern);
+            }
+
+            // Literals every match must contain, checked before any automaton runs
+            Prefilter prefilter = Prefilter.of(ast);
+            AhoCorasick literals = AhoCorasick.fromAst(ast);
+
+            // NFA construction over the pattern's char classes
+            CharClasses classes = CharClasses.fromAst(ast);
+            NFABuilder nfaBuilder = new NFABuilder(classes);
+            NFA nfa = nfaBuilder.build(ast);
+            boolean counted = nfaBuilder.usedCountedRepetition();
+
+            DFA fullDfa = !counted && literals == null ? new DFABuilder().build(nfa, DENSE_DFA_MAX_STATES) : null;
+            DenseDFA denseDfa = fullDfa != null ? DenseDFA.compile(fullDfa).minimize() : null;
+            return new PatternParts(pattern, utf8, parser.getGroupCount(), nfa, counted, prefilter,
+                    literals, denseDfa);
+        } catch (RegexException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RegexException("Failed to compile regex pattern",
+                    0, pattern,
+                    "Unexpected error: " + e.getMessage());
+        }
+    }
+
+    // From code points to the code units the automata consume
+    static RegexNode lower(RegexNode ast, boolean utf8) {
+        return utf8 ? CodeUnits.utf8(ast) : CodeUnits.utf16(ast);
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        PatternArchive.writeString(out, pattern);
+        out.writeInt((literals != null ? HAS_LITERALS : 0)
+                | (denseDfa != null ? HAS_DENSE_DFA : 0)
+                | (countedRepetition ? COUNTED_REPETITION : 0)
+                | (utf8 ? UTF8 : 0));
+        out.writeInt(groupCount);
+        nfa.getCharClasses().write(out);
+        nfa.write(out);
+        prefilter.write(out);
+        if (literals != null) {
+            literals.write(out);
+        }
+        if (denseDfa != null) {
+            denseDfa.write(out);
+        }
+    }
+
+    static PatternParts read(ByteBuffer in) {
+        String pattern = PatternArchive.readString(in);
+        int flags = in.getInt();
+        int groupCount = in.getInt();
+        CharClasses classes = CharClasses.read(in);
+        NFA nfa = NFA.read(in, classes);
+        Prefilter prefilter = Prefilter.read(in);
+        AhoCorasick literals = (flags & HAS_LITERALS) != 0 ? AhoCorasick.read(in) : null;
+        DenseDFA denseDfa = (flags & HAS_DENSE_DFA) != 0 ? DenseDFA.read(in, classes) : null;
+        return new PatternParts(pattern, (flags & UTF8) != 0, groupCount, nfa,
+                (flags & COUNTED_REPETITION) != 0, prefilter, literals, denseDfa);
+    }
+}
@@ -0,0 +1,67 @@
+package lite_regex;
+
+// Leftmost-longest search over a Pike VM's thread list, shared by NFAMatcher
+// and CountingMatcher. Subclasses keep their live threads ordered by start
+// position, so when some thread accepts, every thread that started later can
+// be dropped. Driving the VM one char at a time through these steps is also
+// what lets StreamMatcher search input that arrives in chunks.
+abstract class PikeSearch {
+    // Set only while the engine is timing a call with metrics enabled
+    MatchCounters counters;
+
+    abstract CharClasses charClasses();
+
+    abstract void clearThreads();
+
+    // Adds a thread at the start state that began at the given position
+    abstract void addThread(int start);
+
+    abstract void step(int classId);
+
+    // Start of the first accepting thread, or -1; threads that started after
+    // it are dropped
+    abstract int acceptingStart();
+
+    abstract boolean hasThreads();
+
+    // Start of the earliest live thread, or -1 if there are none
+    abstract int earliestStart();
+
+    // Moves every thread's start position delta chars earlier
+    abstract void shiftStarts(int delta);
+
+    public RegexMatch find(CharSequence text, int from) {
+        return find(text, from, Integer.MAX_VALUE);
+    }
+
+    // Only matches starting before startLimit count, so no thread is started
+    // from there on and the search ends once the earlier ones have died
+    public RegexMatch find(CharSequence text, int from, int startLimit) {
+        CharClasses classes = charClasses();
+        int bestStart = -1;
+        int bestEnd = -1;
+        clearThreads();
+        if (from < startLimit) {
+            addThread(from);
+        }
+
+        for (int pos = from; ; pos++) {
+            int start = acceptingStart();
+            if (start >= 0) {
+                bestStart = start;
+                bestEnd = pos;
+            }
+            if (pos == text.length()
+                    || (!hasThreads() && (bestStart >= 0 || pos + 1 >= startLimit))) {
+                break;
+            }
+            step(classes.classOf(text.charAt(pos)));
+            // Until something matches, a new thread may start at every position
+            if (bestStart < 0 && pos + 1 < startLimit) {
+                addThread(pos + 1);
+            }
+        }
+
+        return bestStart >= 0 ? new RegexMatch(text, bestStart, bestEnd) : null;
+    }
+}
@@ -0,0 +1,227 @@
+package lite_regex;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Literal text every match must contain, pulled out of the AST: a required
+// prefix, a required suffix and the longest required inner substring. These
+// are checked with String.indexOf/startsWith, which the JVM vectorizes, so
+// most non-matching inputs are rejected before any automaton runs, and search
+// can jump straight to the next occurrence of the prefix.
+public class Prefilter {
+    // Longest literal we bother tracking for a repeated sub-pattern
+    private static final int MAX_LITERAL_LENGTH = 256;
+
+    private final String prefix;
+    private final String suffix;
+    private final String required;
+
+    private Prefilter(String prefix, String suffix, String required) {
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.required = required;
+    }
+
+    public static Prefilter of(RegexNode ast) {
+        Literals literals = analyze(ast);
+        return new Prefilter(literals.prefix, literals.suffix, literals.required);
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public String getSuffix() {
+        return suffix;
+    }
+
+    public String getRequired() {
+        return required;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        PatternArchive.writeString(out, prefix);
+        PatternArchive.writeString(out, suffix);
+        PatternArchive.writeString(out, required);
+    }
+
+    static Prefilter read(ByteBuffer in) {
+        return new Prefilter(PatternArchive.readString(in), PatternArchive.readString(in),
+                PatternArchive.readString(in));
+    }
+
+    // False if text cannot possibly match the whole pattern
+    public boolean mayMatch(CharSequence text) {
+        return regionEquals(text, 0, prefix)
+                && regionEquals(text, text.length() - suffix.length(), suffix)
+                && (required.isEmpty() || indexOf(text, required, 0) >= 0);
+    }
+
+    private static boolean regionEquals(CharSequence text, int offset, String literal) {
+        if (offset < 0 || offset + literal.length() > text.length()) {
+            return false;
+        }
+        if (text instanceof String) {
+            return ((String) text).startsWith(literal, offset);
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (text.charAt(offset + i) != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Earliest offset at or after from where a match could start, or -1 if
+    // no match can be found in the rest of the text
+    public int nextCandidate(CharSequence text, int from) {
+        return nextCandidate(text, from, text.length(), text.length());
+    }
+
+    // Same, for a match starting before startLimit and ending by endLimit;
+    // neither literal is looked for past where it could still be used
+    public int nextCandidate(CharSequence text, int from, int startLimit, int endLimit) {
+        if (!required.isEmpty() && indexOf(text, required, from, endLimit) < 0) {
+            return -1;
+        }
+        return prefix.isEmpty() ? from : indexOf(text, prefix, from, startLimit - 1 + prefix.length());
+    }
+
+    static int indexOf(CharSequence text, String literal, int from) {
+        return indexOf(text, literal, from, text.length());
+    }
+
+    // First occurrence at or after from that ends by end
+    static int indexOf(CharSequence text, String literal, int from, int end) {
+        if (text instanceof String && end >= text.length()) {
+            return ((String) text).indexOf(literal, from);
+        }
+        char first = literal.charAt(0);
+        int last = Math.min(text.length(), end) - literal.length();
+        for (int i = from; i <= last; i++) {
+            if (text.charAt(i) != first) {
+                continue;
+            }
+            int k = 1;
+            while (k < literal.length() && text.charAt(i + k) == literal.charAt(k)) {
+                k++;
+            }
+            if (k == literal.length()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // What is known about the strings a node matches. exact is non-null when
+    // the node matches that one string only.
+    private static final class Literals {
+        static final Literals NONE = new Literals(null, "", "", "");
+
+        final String exact;
+        final String prefix;
+        final String suffix;
+        final String required;
+
+        Literals(String exact, String prefix, String suffix, String required) {
+            this.exact = exact;
+            this.prefix = prefix;
+            this.suffix = suffix;
+            this.required = required;
+        }
+
+        static Literals exactly(String literal) {
+            return new Literals(literal, literal, literal, literal);
+        }
+    }
+
+    private static Literals analyze(RegexNode node) {
+        if (node instanceof CharacterNode) {
+            return Literals.exactly(String.valueOf(((CharacterNode) node).getCharacter()));
+        } else if (node instanceof CharacterClassNode) {
+            CharacterClassNode charClass = (CharacterClassNode) node;
+            char[] ranges = charClass.getRanges();
+            if (!charClass.isNegated() && ranges.length == 2 && ranges[0] == ranges[1]) {
+                return Literals.exactly(String.valueOf(ranges[0]));
+            }
+            return Literals.NONE;
+        } else if (node instanceof ConcatenationNode) {
+            return concat(analyze(((ConcatenationNode) node).getLeft()),
+                    analyze(((ConcatenationNode) node).getRight()));
+        } else if (node instanceof AlternationNode) {
+            return alternate(analyze(((AlternationNode) node).getLeft()),
+                    analyze(((AlternationNode) node).getRight()));
+        } else if (node instanceof RepetitionNode) {
+            RepetitionNode repetition = (RepetitionNode) node;
+            return repetition.getOperator() == '+'
+                    ? repeat(analyze(repetition.getChild()), 1, false)
+                    : Literals.NONE;
+        } else if (node instanceof QuantifierNode) {
+            QuantifierNode quantifier = (QuantifierNode) node;
+            boolean exactCount = quantifier.getMax() != null && quantifier.getMax() == quantifier.getMin();
+            return repeat(analyze(quantifier.getChild()), quantifier.getMin(), exactCount);
+        } else if (node instanceof GroupNode) {
+            return analyze(((GroupNode) node).getChild());
+        }
+        return Literals.NONE;
+    }
+
+    private static Literals concat(Literals left, Literals right) {
+        if (left.exact != null && right.exact != null) {
+            return Literals.exactly(left.exact + right.exact);
+        }
+        String prefix = left.exact != null ? left.exact + right.prefix : left.prefix;
+        String suffix = right.exact != null ? left.suffix + right.exact : right.suffix;
+        // Whatever ends the left side is immediately followed by what starts the right
+        String required = longest(left.required, right.required, left.suffix + right.prefix);
+        return new Literals(null, prefix, suffix, longest(required, prefix, suffix));
+    }
+
+    private static Literals alternate(Literals left, Literals right) {
+        if (left.exact != null && left.exact.equals(right.exact)) {
+            return left;
+        }
+        int p = 0;
+        while (p < left.prefix.length() && p < right.prefix.length()
+                && left.prefix.charAt(p) == right.prefix.charAt(p)) {
+            p++;
+        }
+        int s = 0;
+        while (s < left.suffix.length() && s < right.suffix.length()
+                && left.suffix.charAt(left.suffix.length() - 1 - s)
+                    == right.suffix.charAt(right.suffix.length() - 1 - s)) {
+            s++;
+        }
+        // One side's required literal covers both if it occurs in the other's
+        String required = "";
+        if (left.required.contains(right.required)) {
+            required = right.required;
+        } else if (right.required.contains(left.required)) {
+            required = left.required;
+        }
+        String prefix = left.prefix.substring(0, p);
+        String suffix = left.suffix.substring(left.suffix.length() - s);
+        return new Literals(null, prefix, suffix, longest(required, prefix, suffix));
+    }
+
+    private static Literals repeat(Literals child, int min, boolean exactCount) {
+        if (min == 0) {
+            return exactCount ? Literals.exactly("") : Literals.NONE;
+        }
+        if (child.exact != null && (long) child.exact.length() * min <= MAX_LITERAL_LENGTH) {
+            char[] copies = new char[child.exact.length() * min];
+            for (int i = 0; i < min; i++) {
+                child.exact.getChars(0, child.exact.length(), copies, i * child.exact.length());
+            }
+            String repeated = new String(copies);
+            return exactCount ? Literals.exactly(repeated) : new Literals(null, repeated, repeated, repeated);
+        }
+        return new Literals(null, child.prefix, child.suffix, child.required);
+    }
+
+    private static String longest(String... candidates) {
+        return Arrays.stream(candidates).reduce("", (a, b) -> b.length() > a.length() ? b : a);
+    }
+}
@@ -0,0 +1,143 @@
+package lite_regex;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Compiled patterns keyed by pattern string, so the lexer, parser and
+// automaton builders run once per pattern instead of once per check. Entries
+// are spread over independently locked stripes, each an access-ordered LRU
+// map, so threads looking up different patterns rarely contend. Both the
+// entry count and the estimated memory are capped; each stripe gets a share
+// of the caps, the shares adding up to exactly the caps, and evicts its least
+// recently used entries to stay within them. A small cache has fewer stripes,
+// so that every stripe can hold at least one entry.
+public class RegexCache {
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final int MAX_STRIPES = 16;
+
+    private final Stripe[] stripes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public RegexCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+    }
+
+    public RegexCache(int maxEntries, long maxBytes) {
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache limits must be positive");
+        }
+        // A power of two, so a stripe can be picked by masking the hash
+        int count = Integer.highestOneBit(Math.min(MAX_STRIPES, maxEntries));
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            // The first stripes take the remainders
+            stripes[i] = new Stripe(maxEntries / count + (i < maxEntries % count ? 1 : 0),
+                    maxBytes / count + (i < maxBytes % count ? 1 : 0));
+        }
+    }
+
+    // The compiled engine for pattern, compiling it on a miss. Compilation
+    // runs outside the stripe lock; if two threads miss on the same pattern
+    // at once, the first engine stored wins and both get it.
+    public RegexEngine get(String pattern) {
+        Stripe stripe = stripeFor(pattern);
+        synchronized (stripe) {
+            RegexEngine engine = stripe.entries.get(pattern);
+            if (engine != null) {
+                hits.increment();
+                return engine;
+            }
+        }
+        misses.increment();
+        RegexEngine compiled = new RegexEngine(pattern);
+        synchronized (stripe) {
+            RegexEngine existing = stripe.entries.get(pattern);
+            if (existing != null) {
+                return existing;
+            }
+            stripe.entries.put(pattern, compiled);
+            stripe.bytes += compiled.getEstimatedBytes();
+            stripe.evict(compiled);
+        }
+        return compiled;
+    }
+
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.entries.clear();
+                stripe.bytes = 0;
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.entries.size();
+            }
+        }
+        return size;
+    }
+
+    public long getEstimatedBytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                bytes += stripe.bytes;
+            }
+        }
+        return bytes;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private Stripe stripeFor(String pattern) {
+        int hash = pattern.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private final class Stripe {
+        final LinkedHashMap<String, RegexEngine> entries = new LinkedHashMap<>(16, 0.75f, true);
+        final int maxEntries;
+        final long maxBytes;
+        long bytes;
+
+        Stripe(int maxEntries, long maxBytes) {
+            this.maxEntries = maxEntries;
+            this.maxBytes = maxBytes;
+        }
+
+        // Drops least recently used entries until the stripe is within its
+        // caps. The newest entry is kept even if it alone is over the byte cap.
+        void evict(RegexEngine newest) {
+            Iterator<Map.Entry<String, RegexEngine>> eldest = entries.entrySet().iterator();
+            while ((entries.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+                RegexEngine engine = eldest.next().getValue();
+                if (engine == newest) {
+                    break;
+                }
+                eldest.remove();
+                bytes -= engine.getEstimatedBytes();
+                evictions.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,588 @@
+package lite_regex;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+// A compiled pattern. Engines are immutable once constructed and may be
+// shared freely between threads (RegexEngine.compile hands out one instance
+// per pattern). Everything a match mutates - the Pike VM's thread lists and
+// the lazily built DFA caches - lives in a Scratch object kept per thread.
+public class RegexEngine {
+    // Rough per-object costs used to estimate a compiled engine's footprint
+    private static final long ENGINE_OVERHEAD_BYTES = 4096;
+    private static final long NFA_STATE_BYTES = 32;
+    // CountedNFA's body and iteration-end tables
+    private static final long COUNTED_STATE_BYTES = 8;
+    private static final long TRIE_STATE_BYTES = 20;
+    // Inputs per task in a parallel matchAll; a multiple of 64 so that no two
+    // tasks write to the same word of the result
+    private static final int MATCH_BATCH_SIZE = 4096;
+
+    private static final RegexCache CACHE = new RegexCache();
+
+    private final NFA nfa;
+    private final String pattern;
+    // Runs on UTF-8 bytes, one per char, rather than UTF-16 chars (see bytes())
+    private final boolean utf8;
+    private final int groupCount;
+    private final long dfaCacheCapacity;
+    private final int minLength;
+    private final Integer maxLength;
+    private final DenseDFA denseDfa;
+    // Exactly one of these is set, depending on whether the NFA has counters
+    private final CompiledNFA compiled;
+    private final CountedNFA counted;
+    private final Prefilter prefilter;
+    // Set when the pattern is just an alternation of literals
+    private final AhoCorasick literals;
+    private final long estimatedBytes;
+    private final PatternMetrics metrics;
+    // Built on first use, since most callers never ask for groups. onePass is
+    // written before captureProgram is published.
+    private volatile CaptureProgram captureProgram;
+    private OnePassDFA onePass;
+    // The same pattern over UTF-8 bytes, built on first use
+    private volatile RegexEngine bytes;
+    private final ThreadLocal<Scratch> scratch;
+
+    // Per-thread matching state. It must not point back at the engine, or a
+    // thread would keep every engine it ever used alive through its
+    // ThreadLocal map.
+    private static final class Scratch {
+        final NFAMatcher matcher;
+        final LazyDFA dfa;
+        final SearchDFA searchDfa;
+        final LazyDFA reverseDfa;
+        final CountingMatcher countingMatcher;
+        // Shared by every automaton above while a call is being counted
+        final MatchCounters counters = new MatchCounters();
+        // Views of char[] and UTF-8 byte input
+        final InputViews views = new InputViews();
+        // Created the first time this thread extracts groups
+        BoundedBacktracker backtracker;
+        CaptureVM captureVM;
+
+        Scratch(NFA nfa, CompiledNFA compiled, NFA reverseNfa, long dfaCacheCapacity) {
+            this.matcher = new NFAMatcher(compiled);
+            this.dfa = new LazyDFA(nfa, dfaCacheCapacity);
+            this.searchDfa = new SearchDFA(compiled, dfaCacheCapacity);
+            this.reverseDfa = new LazyDFA(reverseNfa, dfaCacheCapacity);
+            this.countingMatcher = null;
+        }
+
+        // Counted repetitions can only be run by the counting Pike VM
+        Scratch(CountedNFA counted) {
+            this.matcher = null;
+            this.dfa = null;
+            this.searchDfa = null;
+            this.reverseDfa = null;
+            this.countingMatcher = new CountingMatcher(counted);
+        }
+
+        // Hands the cleared counters to the automata for one timed call.
+        // Between such calls they hold null and skip counting altogether.
+        MatchCounters startCounting() {
+            counters.clear();
+            attach(counters);
+            return counters;
+        }
+
+        void stopCounting() {
+            attach(null);
+        }
+
+        private void attach(MatchCounters target) {
+            if (countingMatcher != null) {
+                countingMatcher.counters = target;
+            } else {
+                matcher.counters = target;
+                dfa.counters = target;
+                searchDfa.counters = target;
+                reverseDfa.counters = target;
+            }
+        }
+    }
+
+    public RegexEngine(String pattern) {
+        this(pattern, LazyDFA.DEFAULT_CACHE_CAPACITY);
+    }
+
+    public RegexEngine(String pattern, long dfaCacheCapacity) {
+        this(PatternParts.compile(pattern), dfaCacheCapacity);
+    }
+
+    // Also used for patterns loaded from a PatternArchive, so only the cheap
+    // steps that are not stored happen here
+    RegexEngine(PatternParts parts, long dfaCacheCapacity) {
+        this(parts, dfaCacheCapacity, null);
+    }
+
+    // metrics is shared with the engine this one runs bytes for, or null
+    private RegexEngine(PatternParts parts, long dfaCacheCapacity, PatternMetrics metrics) {
+        this.pattern = parts.pattern;
+        this.utf8 = parts.utf8;
+        this.groupCount = parts.groupCount;
+        this.dfaCacheCapacity = dfaCacheCapacity;
+        this.nfa = parts.nfa;
+        this.prefilter = parts.prefilter;
+        this.literals = parts.literals;
+        this.denseDfa = parts.denseDfa;
+        this.metrics = metrics != null ? metrics : new PatternMetrics(pattern, denseDfa);
+        int nfaStates;
+        long countedBytes = 0;
+
+        if (parts.countedRepetition) {
+            // Large {n,m} keep one copy of their body and a counter, which
+            // none of the DFAs can represent
+            CountedNFA counted = CountedNFA.compile(nfa);
+            nfaStates = counted.getStateCount();
+            countedBytes = COUNTED_STATE_BYTES * nfaStates;
+            this.counted = counted;
+            this.compiled = null;
+            this.scratch = ThreadLocal.withInitial(() -> new Scratch(counted));
+        } else {
+            CompiledNFA compiled = CompiledNFA.compile(nfa);
+            nfaStates = compiled.getStateCount();
+            this.compiled = compiled;
+            this.counted = null;
+
+            // Unanchored search: forward DFA finds the end, reversed DFA the start
+            NFA reverseNfa = nfa.reverse();
+            NFA forwardNfa = nfa;
+            this.scratch = ThreadLocal.withInitial(
+                    () -> new Scratch(forwardNfa, compiled, reverseNfa, dfaCacheCapacity));
+        }
+
+        // Store length constraints for quick access
+        this.minLength = nfa.getMinLength();
+        this.maxLength = nfa.getMaxLength();
+
+        // The lazy DFA caches are not counted; each is bounded by
+        // dfaCacheCapacity. Nor are CountingMatcher's thread lists, which
+        // follow the threads alive at once and not the repetitions' bounds.
+        this.estimatedBytes = ENGINE_OVERHEAD_BYTES + 2L * pattern.length()
+                + NFA_STATE_BYTES * nfaStates + countedBytes
+                + (denseDfa != null ? 4L * denseDfa.getTableSize() : 0)
+                + (literals != null ? TRIE_STATE_BYTES * literals.getStateCount() : 0);
+    }
+
+    PatternParts parts() {
+        return new PatternParts(pattern, utf8, groupCount, nfa, counted != null, prefilter, literals, denseDfa);
+    }
+
+    // This pattern compiled over UTF-8 bytes, to run straight over byte input
+    // read one char per byte (a ByteCharSequence). '.' and [^...] match a
+    // whole multi-byte code point, invalid bytes match nothing, and the
+    // offsets it reports are byte offsets.
+    RegexEngine bytes() {
+        if (utf8) {
+            return this;
+        }
+        RegexEngine engine = bytes;
+        if (engine == null) {
+            synchronized (this) {
+                engine = bytes;
+                if (engine == null) {
+                    engine = new RegexEngine(PatternParts.compile(pattern, true), dfaCacheCapacity, metrics);
+                    bytes = engine;
+                }
+            }
+        }
+        return engine;
+    }
+    
+    // The engine for pattern from the shared cache, compiling it on first use
+    public static RegexEngine compile(String pattern) {
+        return CACHE.get(pattern);
+    }
+
+    public static RegexCache getCache() {
+        return CACHE;
+    }
+
+    public boolean matches(CharSequence text) {
+        return matches(text, null);
+    }
+
+    // The overloads below match a region of a buffer in place, with no String
+    // copy; arrays are read through a view kept per thread
+
+    public boolean matches(char[] text, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, text.length);
+        Scratch local = scratch.get();
+        try {
+            return matches(local.views.chars(text, offset, length), local);
+        } finally {
+            local.views.clear();
+        }
+    }
+
+    // Matches UTF-8 bytes as they are, with no decoding, through the byte
+    // automata of bytes(); bytes that are not valid UTF-8 match nothing
+    public boolean matches(byte[] utf8, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, utf8.length);
+        RegexEngine engine = bytes();
+        Scratch local = engine.scratch.get();
+        try {
+            return engine.matches(local.views.bytes(utf8, offset, length), local);
+        } finally {
+            local.views.clear();
+        }
+    }
+
+    // The UTF-8 bytes between the buffer's position and limit; the position
+    // is left unchanged
+    public boolean matches(ByteBuffer utf8) {
+        RegexEngine engine = bytes();
+        Scratch local = engine.scratch.get();
+        try {
+            return engine.matches(local.views.bytes(utf8), local);
+        } finally {
+            local.views.clear();
+        }
+    }
+
+    // local is the caller's scratch, or null to look it up only if needed
+    private boolean matches(CharSequence text, Scratch local) {
+        if (!RegexMetrics.isEnabled()) {
+            return matchText(text, local);
+        }
+        if (local == null) {
+            local = scratch.get();
+        }
+        MatchCounters counters = local.startCounting();
+        try {
+            long started = System.nanoTime();
+            boolean matched = matchText(text, local);
+            RegexMetrics.record(metrics, RegexMetrics.Operation.MATCH, text.length(),
+                    System.nanoTime() - started, counters);
+            return matched;
+        } finally {
+            local.stopCounting();
+        }
+    }
+
+    private boolean matchText(CharSequence text, Scratch local) {
+        // Quick length check before NFA matching
+        if (text.length() < minLength) {
+            return false;
+        }
+        if (maxLength != null && text.length() > maxLength) {
+            return false;
+        }
+        if (literals != null) {
+            return literals.matches(text);
+        }
+        if (!prefilter.mayMatch(text)) {
+            return false;
+        }
+        if (denseDfa != null) {
+            return denseDfa.matches(text);
+        }
+        if (local == null) {
+            local = scratch.get();
+        }
+        if (local.countingMatcher != null) {
+            return local.countingMatcher.matches(text);
+        }
+        // Lazy DFA next; fall back to the NFA if its cache keeps overflowing
+        int result = local.dfa.matches(text);
+        if (result == LazyDFA.GAVE_UP) {
+            recordFallback();
+            return local.matcher.matches(text);
+        }
+        return result == LazyDFA.MATCH;
+    }
+
+    // Matches every input against the whole pattern, looking up this thread's
+    // scratch once for the batch. Bit i of the result is set if input i matches.
+    public BitSet matchAll(List<? extends CharSequence> inputs) {
+        long[] words = new long[(inputs.size() + 63) >>> 6];
+        Scratch local = scratch.get();
+        int i = 0;
+        for (CharSequence input : inputs) {
+            if (matches(input, local)) {
+                words[i >>> 6] |= 1L << i;
+            }
+            i++;
+        }
+        return BitSet.valueOf(words);
+    }
+
+    public void matchAll(CharSequence[] inputs, boolean[] out) {
+        if (out.length < inputs.length) {
+            throw new IllegalArgumentException("Result array of length " + out.length
+                    + " is shorter than the " + inputs.length + " inputs");
+        }
+        Scratch local = scratch.get();
+        for (int i = 0; i < inputs.length; i++) {
+            out[i] = matches(inputs[i], local);
+        }
+    }
+
+    // Same, split into batches that run on executor (which may start a
+    // virtual thread per task) and waiting for all of them. Each batch uses
+    // the scratch of the thread running it.
+    public BitSet matchAll(List<? extends CharSequence> inputs, Executor executor) {
+        List<? extends CharSequence> list = inputs instanceof RandomAccess ? inputs : new ArrayList<>(inputs);
+        long[] words = new long[(list.size() + 63) >>> 6];
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += MATCH_BATCH_SIZE) {
+            int start = from;
+            int end = Math.min(list.size(), from + MATCH_BATCH_SIZE);
+            batches.add(CompletableFuture.runAsync(() -> {
+                Scratch local = scratch.get();
+                for (int i = start; i < end; i++) {
+                    if (matches(list.get(i), local)) {
+                        words[i >>> 6] |= 1L << i;
+                    }
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0])).join();
+        return BitSet.valueOf(words);
+    }
+
+    // Finds the leftmost-longest match in text, or null if there is none
+    public RegexMatch find(CharSequence text) {
+        return find(text, 0);
+    }
+
+    public RegexMatch find(CharSequence text, int from) {
+        return find(text, from, Integer.MAX_VALUE);
+    }
+
+    // The leftmost-longest match that starts in [from, startLimit). It may end
+    // past startLimit; the text after it is read only as far as such a match
+    // could reach, so a caller can search one region of a larger text.
+    public RegexMatch find(CharSequence text, int from, int startLimit) {
+        if (from < 0 || from > text.length()) {
+            throw new IndexOutOfBoundsException("from " + from + " outside text of length " + text.length());
+        }
+        if (!RegexMetrics.isEnabled()) {
+            return withGroups(search(text, from, startLimit));
+        }
+        Scratch local = scratch.get();
+        MatchCounters counters = local.startCounting();
+        try {
+            long started = System.nanoTime();
+            RegexMatch match = withGroups(search(text, from, startLimit));
+            RegexMetrics.record(metrics, RegexMetrics.Operation.FIND, text.length(),
+                    System.nanoTime() - started, counters);
+            return match;
+        } finally {
+            local.stopCounting();
+        }
+    }
+
+    private RegexMatch search(CharSequence text, int from, int startLimit) {
+        if (from >= startLimit) {
+            return null;
+        }
+        if (literals != null) {
+            return literals.find(text, from, startLimit);
+        }
+        // Skip ahead to where the required literal prefix occurs
+        int startEnd = (int) Math.min(text.length() + 1L, startLimit);
+        int endLimit = maxLength == null ? text.length()
+                : (int) Math.min(text.length(), startEnd - 1L + maxLength);
+        int candidate = prefilter.nextCandidate(text, from, startEnd, endLimit);
+        if (candidate < 0 || candidate >= startLimit || text.length() - candidate < minLength) {
+            return null;
+        }
+        Scratch local = scratch.get();
+        if (local.countingMatcher != null) {
+            return local.countingMatcher.find(text, candidate, startLimit);
+        }
+        int end = local.searchDfa.findEnd(text, candidate, startLimit);
+        if (end == SearchDFA.NO_MATCH) {
+            return null;
+        }
+        if (end != SearchDFA.GAVE_UP) {
+            int start = local.reverseDfa.matchStartBackward(text, end, candidate);
+            if (start != LazyDFA.GAVE_UP) {
+                return new RegexMatch(text, start, end);
+            }
+        }
+        recordFallback();
+        return local.matcher.find(text, candidate, startLimit);
+    }
+
+    // Lets the match extract its groups through this engine
+    private RegexMatch withGroups(RegexMatch match) {
+        return match != null ? new RegexMatch(match.text(), match.start(), match.end(), this) : null;
+    }
+
+    // The whole text as a match whose groups can be read, or null if the
+    // pattern does not match all of it
+    public RegexMatch match(CharSequence text) {
+        return matches(text, null) ? new RegexMatch(text, 0, text.length(), this) : null;
+    }
+
+    public int groupCount() {
+        return groupCount;
+    }
+
+    // Start and end of every group for a match known to span [start, end).
+    // The span is fixed, so each strategy only has to pick its groups: a
+    // one-pass DFA when the pattern allows, else a bounded backtracker for
+    // spans short enough for its visited bitset, else the Pike VM.
+    int[] captureGroups(CharSequence text, int start, int end) {
+        if (groupCount == 0) {
+            return new int[] {start, end};
+        }
+        CaptureProgram program = captureProgram();
+        if (onePass != null) {
+            return onePass.capture(text, start, end);
+        }
+        Scratch local = scratch.get();
+        if (BoundedBacktracker.fits(program, end - start)) {
+            if (local.backtracker == null) {
+                local.backtracker = new BoundedBacktracker();
+            }
+            return local.backtracker.capture(program, text, start, end);
+        }
+        if (local.captureVM == null) {
+            local.captureVM = new CaptureVM(program);
+        }
+        return local.captureVM.capture(text, start, end);
+    }
+
+    private CaptureProgram captureProgram() {
+        CaptureProgram program = captureProgram;
+        if (program == null) {
+            synchronized (this) {
+                program = captureProgram;
+                if (program == null) {
+                    program = CaptureProgram.compile(pattern, nfa.getCharClasses(), utf8);
+                    onePass = OnePassDFA.build(program);
+                    captureProgram = program;
+                }
+            }
+        }
+        return program;
+    }
+
+    private void recordFallback() {
+        if (RegexMetrics.isEnabled()) {
+            metrics.recordFallback();
+        }
+    }
+
+    // All non-overlapping matches, scanning left to right. After an empty match
+    // the next search starts one char later so the scan always advances.
+    public List<RegexMatch> findAll(CharSequence text) {
+        List<RegexMatch> matches = new ArrayList<>();
+        int from = 0;
+        while (from <= text.length()) {
+            RegexMatch match = find(text, from);
+            if (match == null) {
+                break;
+            }
+            matches.add(match);
+            from = match.end() > match.start() ? match.end() : match.end() + 1;
+        }
+        return matches;
+    }
+
+    // A matcher for input that arrives in chunks, reporting each match to
+    // listener as it completes. Byte input is decoded as UTF-8.
+    public StreamMatcher streamMatcher(StreamMatcher.MatchListener listener) {
+        return streamMatcher(listener, StandardCharsets.UTF_8);
+    }
+
+    public StreamMatcher streamMatcher(StreamMatcher.MatchListener listener, Charset charset) {
+        PikeSearch search = counted != null ? new CountingMatcher(counted) : new NFAMatcher(compiled);
+        return new StreamMatcher(search, listener, charset);
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public int getMinLength() {
+        return minLength;
+    }
+
+    public Integer getMaxLength() {
+        return maxLength;
+    }
+
+    // Call counts, timings and automaton work for this pattern; only updated
+    // while RegexMetrics is enabled
+    public PatternMetrics getMetrics() {
+        return metrics;
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    public static void main(String[] args) {
+        Scanner scanner = new Scanner(System.in);
+        System.out.print("Enter regex pattern: ");
+        String pattern = scanner.nextLine();
+
+        try {
+            RegexEngine engine = new RegexEngine(pattern);
+            System.out.println("Pattern compiled successfully!");
+            
+            // Print pattern info
+            System.out.println("\n=== Pattern Information ===");
+            System.out.println("Minimum length: " + engine.getMinLength());
+            if (engine.getMaxLength() != null) {
+                System.out.println("Maximum length: " + engine.getMaxLength());
+            } else {
+                System.out.println("Maximum length: unlimited");
+            }
+            if (engine.denseDfa != null) {
+                System.out.println("DFA states: " + engine.denseDfa.getStateCount()
+                        + " (" + engine.denseDfa.getUnminimizedStateCount() + " before minimization)");
+            }
+            
+            // Print explanation
+            System.out.println("\n=== Pattern Explanation ===");
+            System.out.println(PatternExplainer.explain(pattern));
+            System.out.println("===========================\n");
+
+            // Interactive testing loop
+            while (true) {
+                System.out.print("Enter text to test (or type 'exit' to quit): ");
+                String input = scanner.nextLine();
+
+                if ("exit".equalsIgnoreCase(input)) {
+                    break;
+                }
+
+                boolean result = engine.matches(input);
+                System.out.println("'" + input + "' " + (result ? "matches" : "does not match") +
+                        " pattern '" + pattern + "'");
+                
+                // Show length info if mismatch
+                if (!result) {
+                    if (input.length() < engine.getMinLength()) {
+                        System.out.println("  (Input too short - minimum length is " + 
+                                         engine.getMinLength() + ")");
+                    } else if (engine.getMaxLength() != null && 
+                              input.length() > engine.getMaxLength()) {
+                        System.out.println("  (Input too long - maximum length is " + 
+                                         engine.getMaxLength() + ")");
+                    }
+                }
+            }
+        } catch (RegexException e) {
+            System.err.println(e.getMessage());
+        } finally {
+            scanner.close();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,175 @@
+package lite_regex;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// grep over memory-mapped UTF-8 files. Each file is mapped with
+// FileChannel.map and the engine's byte automata (RegexEngine.bytes) search
+// every line in place through a ByteCharSequence, so no bytes are copied or
+// decoded and no String is built except for lines that are printed.
+public class RegexGrep {
+    public interface LineListener {
+        // Line numbers start at 1 and offset is the line's byte offset. The
+        // line (without its '\n') is a view into the mapped file that is
+        // only valid during the call: each char is one byte of the file, and
+        // line.toString() decodes it as UTF-8.
+        void onLine(long lineNumber, long offset, CharSequence line);
+    }
+
+    // Files are mapped in line-aligned segments of about this size
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private RegexGrep() {
+    }
+
+    // Reports every line of file in which engine finds a match, returning how many there were
+    public static long scan(RegexEngine engine, Path file, LineListener listener) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long lineNumber = 1;
+            long[] matched = new long[1];
+            LineListener counting = (number, offset, line) -> {
+                matched[0]++;
+                listener.onLine(number, offset, line);
+            };
+            long segmentStart = 0;
+            while (segmentStart < size) {
+                MappedByteBuffer segment = map(channel, segmentStart, size);
+                lineNumber += scanLines(engine, segment, segmentStart, lineNumber, counting);
+                segmentStart += segment.limit();
+            }
+            return matched[0];
+        }
+    }
+
+    // Searches each line of segment, which starts at byte offset of the file
+    // and with line number firstLine, and returns how many lines it has
+    static int scanLines(RegexEngine engine, ByteBuffer segment, long offset, long firstLine,
+                         LineListener listener) {
+        RegexEngine bytes = engine.bytes();
+        ByteCharSequence line = new ByteCharSequence(segment);
+        int limit = segment.limit();
+        int lines = 0;
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && segment.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            line.reset(lineStart, lineEnd - lineStart);
+            if (bytes.find(line) != null) {
+                listener.onLine(firstLine + lines, offset + lineStart, line);
+            }
+            lines++;
+            lineStart = lineEnd + 1;
+        }
+        return lines;
+    }
+
+    // Maps from start up to the last line break within SEGMENT_SIZE bytes, or
+    // to the end of the file. A line too long to fit is split.
+    private static MappedByteBuffer map(FileChannel channel, long start, long size) throws IOException {
+        long length = Math.min(size - start, SEGMENT_SIZE);
+        MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        if (start + length < size) {
+            int cut = (int) length;
+            while (cut > 0 && segment.get(cut - 1) != '\n') {
+                cut--;
+            }
+            if (cut > 0) {
+                segment.limit(cut);
+            }
+        }
+        return segment;
+    }
+
+    // With -p each file is searched in chunks on the pool
+    private static long scan(RegexEngine engine, Path file, ForkJoinPool pool, LineListener listener)
+            throws IOException {
+        return pool != null ? ParallelSearch.grep(engine, file, pool, listener) : scan(engine, file, listener);
+    }
+
+    public static void main(String[] args) {
+        boolean countOnly = false;
+        boolean lineNumbers = false;
+        boolean byteOffsets = false;
+        boolean parallel = false;
+        int argIndex = 0;
+        while (argIndex < args.length && args[argIndex].startsWith("-") && args[argIndex].length() > 1) {
+            for (char flag : args[argIndex].substring(1).toCharArray()) {
+                switch (flag) {
+                    case 'c': countOnly = true; break;
+                    case 'n': lineNumbers = true; break;
+                    case 'b': byteOffsets = true; break;
+                    case 'p': parallel = true; break;
+                    default:
+                        System.err.println("Unknown option -" + flag);
+                        System.exit(2);
+                }
+            }
+            argIndex++;
+        }
+        if (args.length - argIndex < 2) {
+            System.err.println("Usage: RegexGrep [-c] [-n] [-b] [-p] <pattern> <file>...");
+            System.exit(2);
+        }
+
+        RegexEngine engine;
+        try {
+            engine = RegexEngine.compile(args[argIndex++]);
+        } catch (RegexException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        List<Path> files = new ArrayList<>();
+        for (int i = argIndex; i < args.length; i++) {
+            files.add(Paths.get(args[i]));
+        }
+        PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 1 << 16), false);
+        boolean showNames = files.size() > 1;
+        boolean printNumbers = lineNumbers;
+        boolean printOffsets = byteOffsets;
+        ForkJoinPool pool = parallel ? ForkJoinPool.commonPool() : null;
+        long total = 0;
+        boolean failed = false;
+        for (Path file : files) {
+            String prefix = showNames ? file + ":" : "";
+            try {
+                long count;
+                if (countOnly) {
+                    count = scan(engine, file, pool, (lineNumber, offset, line) -> { });
+                    out.println(prefix + count);
+                } else {
+                    count = scan(engine, file, pool, (lineNumber, offset, line) -> {
+                        out.print(prefix);
+                        if (printNumbers) out.print(lineNumber + ":");
+                        if (printOffsets) out.print(offset + ":");
+                        // Each char is one byte of the file, so this copies the line through as is
+                        for (int i = 0; i < line.length(); i++) {
+                            out.write(line.charAt(i));
+                        }
+                        out.println();
+                    });
+                }
+                total += count;
+            } catch (IOException e) {
+                System.err.println("RegexGrep: " + file + ": " + e.getMessage());
+                failed = true;
+            }
+        }
+        out.flush();
+        System.exit(failed ? 2 : total > 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,83 @@
+package lite_regex;
+
+// One match found by RegexEngine.find or RegexEngine.match: the text it was
+// found in and the [start, end) offsets of the matched region. Capturing
+// groups are extracted from the matched region the first time one is asked
+// for. Of all the ways the pattern can match that region, groups follow the
+// one a backtracking engine would try first: the left side of '|' before the
+// right, and as many iterations of a greedy repetition as still fit.
+public class RegexMatch {
+    private final CharSequence text;
+    private final int start;
+    private final int end;
+    // Null for matches made without an engine, which have no groups
+    private final RegexEngine engine;
+    // Start and end of each group, -1 for groups that did not participate
+    private int[] groups;
+
+    public RegexMatch(CharSequence text, int start, int end) {
+        this(text, start, end, null);
+    }
+
+    RegexMatch(CharSequence text, int start, int end, RegexEngine engine) {
+        this.text = text;
+        this.start = start;
+        this.end = end;
+        this.engine = engine;
+    }
+
+    CharSequence text() {
+        return text;
+    }
+
+    public int start() {
+        return start;
+    }
+
+    public int end() {
+        return end;
+    }
+
+    public String group() {
+        return text.subSequence(start, end).toString();
+    }
+
+    public int groupCount() {
+        return engine != null ? engine.groupCount() : 0;
+    }
+
+    // Where group starts, or -1 if it did not take part in the match. Group
+    // 0 is the whole match, which needs no extraction.
+    public int start(int group) {
+        return group == 0 ? start : groups(group)[2 * group];
+    }
+
+    public int end(int group) {
+        return group == 0 ? end : groups(group)[2 * group + 1];
+    }
+
+    // The text group matched, or null if it did not take part in the match
+    public String group(int group) {
+        if (group == 0) {
+            return group();
+        }
+        int[] slots = groups(group);
+        return slots[2 * group] >= 0
+                ? text.subSequence(slots[2 * group], slots[2 * group + 1]).toString() : null;
+    }
+
+    private int[] groups(int group) {
+        if (group < 0 || group > groupCount()) {
+            throw new IndexOutOfBoundsException("No group " + group + ", pattern has " + groupCount());
+        }
+        if (groups == null) {
+            groups = engine != null ? engine.captureGroups(text, start, end) : new int[] {start, end};
+        }
+        return groups;
+    }
+
+    @Override
+    public String toString() {
+        return "RegexMatch[" + start + ", " + end + ") '" + group() + "'";
+    }
+}
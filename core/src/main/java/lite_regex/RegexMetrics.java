@@ -0,0 +1,48 @@
+package lite_regex;
+
+// Switches metrics recording on or off for every engine, and lets one
+// listener see each call as it happens. Off by default (unless the
+// lite_regex.metrics system property is true); while off, engines pay one
+// volatile read per call, and the automata a null check per step where they
+// would count. Each engine's totals and latency histogram are in
+// RegexEngine.getMetrics(), and RegexMetricsJmx publishes them over JMX.
+public final class RegexMetrics {
+    public enum Operation {
+        MATCH,
+        FIND
+    }
+
+    public interface Listener {
+        // Called on the calling thread after each recorded matches() or
+        // find(), with the time the call took. Keep it cheap.
+        void onCall(PatternMetrics metrics, Operation operation, int textLength, long nanos);
+    }
+
+    private static volatile boolean enabled = Boolean.getBoolean("lite_regex.metrics");
+    private static volatile Listener listener;
+
+    private RegexMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    // Replaces the listener; null removes it
+    public static void setListener(Listener newListener) {
+        listener = newListener;
+    }
+
+    static void record(PatternMetrics metrics, Operation operation, int textLength, long nanos,
+                       MatchCounters counters) {
+        metrics.record(operation == Operation.FIND, nanos, counters);
+        Listener current = listener;
+        if (current != null) {
+            current.onCall(metrics, operation, textLength, nanos);
+        }
+    }
+}
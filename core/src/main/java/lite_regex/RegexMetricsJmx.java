@@ -0,0 +1,91 @@
+package lite_regex;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Publishes engines' PatternMetrics on the platform MBean server, one MXBean
+// per pattern named lite_regex:type=PatternMetrics,pattern="...". Kept apart
+// from RegexMetrics so the engine only needs java.management when this is used.
+// No javax.management type appears in the signatures below, since the module
+// only requires java.management statically: names are plain strings and JMX
+// failures surface as IllegalStateException.
+//
+// That includes java.management being absent, as in a runtime jlinked with
+// java.base alone or a module path run without --add-modules
+// java.management. Every JMX call is made from Platform, so only its linking
+// fails, with a NoClassDefFoundError that the methods here catch.
+public final class RegexMetricsJmx {
+    private RegexMetricsJmx() {
+    }
+
+    // The MXBean's object name, in the form ObjectName accepts
+    public static String nameOf(RegexEngine engine) {
+        try {
+            return Platform.nameOf(engine);
+        } catch (NoClassDefFoundError e) {
+            throw unavailable(e);
+        }
+    }
+
+    // Fails if an engine for the same pattern is already registered; share
+    // engines through RegexEngine.compile to have one per pattern
+    public static String register(RegexEngine engine) {
+        try {
+            return Platform.register(engine);
+        } catch (NoClassDefFoundError e) {
+            throw unavailable(e);
+        }
+    }
+
+    public static void unregister(RegexEngine engine) {
+        try {
+            Platform.unregister(engine);
+        } catch (NoClassDefFoundError e) {
+            throw unavailable(e);
+        }
+    }
+
+    private static IllegalStateException unavailable(NoClassDefFoundError e) {
+        return new IllegalStateException("JMX needs the java.management module; add it with --add-modules java.management", e);
+    }
+
+    private static final class Platform {
+        static String nameOf(RegexEngine engine) {
+            return objectName(engine).getCanonicalName();
+        }
+
+        static String register(RegexEngine engine) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = objectName(engine);
+            try {
+                server.registerMBean(engine.getMetrics(), name);
+            } catch (JMException e) {
+                throw new IllegalStateException("Cannot register metrics as " + name, e);
+            }
+            return name.getCanonicalName();
+        }
+
+        static void unregister(RegexEngine engine) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = objectName(engine);
+            try {
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+            } catch (JMException e) {
+                throw new IllegalStateException("Cannot unregister metrics " + name, e);
+            }
+        }
+
+        private static ObjectName objectName(RegexEngine engine) {
+            try {
+                return new ObjectName("lite_regex:type=PatternMetrics,pattern=" + ObjectName.quote(engine.getPattern()));
+            } catch (JMException e) {
+                // Unreachable: the quoted pattern is always a valid value
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
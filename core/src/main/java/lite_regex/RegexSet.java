@@ -0,0 +1,81 @@
+package lite_regex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Matches many patterns against the same input in one pass. The patterns'
+// NFAs are joined under a single start state with each accept state tagged
+// by its pattern's index, and one lazy DFA runs over the union, so checking
+// a record costs O(length) however many patterns there are. Like
+// RegexEngine, a set is immutable and can be shared between threads; the DFA
+// cache and NFA scratch space are kept per thread.
+public class RegexSet {
+    private final List<String> patterns;
+    private final ThreadLocal<Scratch> scratch;
+
+    // Must not point back at the set (see RegexEngine.Scratch)
+    private static final class Scratch {
+        final LazyDFA dfa;
+        final NFAMatcher matcher;
+
+        Scratch(NFA union, CompiledNFA compiled, long dfaCacheCapacity) {
+            this.dfa = new LazyDFA(union, dfaCacheCapacity);
+            this.matcher = new NFAMatcher(compiled);
+        }
+    }
+
+    public RegexSet(List<String> patterns) {
+        this(patterns, LazyDFA.DEFAULT_CACHE_CAPACITY);
+    }
+
+    public RegexSet(List<String> patterns, long dfaCacheCapacity) {
+        this.patterns = Collections.unmodifiableList(new ArrayList<>(patterns));
+
+        List<RegexNode> asts = new ArrayList<>();
+        for (String pattern : this.patterns) {
+            asts.add(CodeUnits.utf16(new parser(new lexer(pattern).tokenize(), pattern).parse()));
+        }
+
+        try {
+            CharClasses classes = CharClasses.fromAsts(asts);
+            // The shared lazy DFA needs plain NFAs, so repetitions are copied
+            NFA union = new NFABuilder(classes, false).buildUnion(asts);
+            CompiledNFA compiled = CompiledNFA.compile(union);
+            this.scratch = ThreadLocal.withInitial(() -> new Scratch(union, compiled, dfaCacheCapacity));
+        } catch (RegexException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RegexException("Failed to compile regex set",
+                    0, String.join("|", this.patterns),
+                    "Unexpected error: " + e.getMessage());
+        }
+    }
+
+    // Indices (in ascending order) of every pattern that matches the whole text
+    public int[] matches(CharSequence text) {
+        Scratch local = scratch.get();
+        int[] ids = local.dfa.matchingPatterns(text);
+        if (ids == null) {
+            return local.matcher.matchingPatterns(text);
+        }
+        return ids.clone();
+    }
+
+    public boolean matchesAny(CharSequence text) {
+        Scratch local = scratch.get();
+        int[] ids = local.dfa.matchingPatterns(text);
+        if (ids == null) {
+            ids = local.matcher.matchingPatterns(text);
+        }
+        return ids.length > 0;
+    }
+
+    public List<String> getPatterns() {
+        return patterns;
+    }
+
+    public int size() {
+        return patterns.size();
+    }
+}
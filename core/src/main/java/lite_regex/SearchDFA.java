@@ -0,0 +1,255 @@
+package lite_regex;
+
+import java.util.*;
+
+// Lazy DFA for unanchored, leftmost-longest search. It only finds where the
+// match ends; the start is recovered afterwards by running the reversed
+// pattern backwards from that end.
+//
+// A plain subset DFA forgets where each thread started, so, like RE2's
+// longest-match mode, each DFA state keeps the NFA states grouped by start
+// position, earliest start first. A state reached from two starts stays only
+// in the earlier group. Once some group accepts, every later group is dropped
+// and no new starts are added, so the last accepting position seen before
+// the DFA dies is the end of the leftmost-longest match. Like LazyDFA, an
+// instance belongs to one thread.
+public class SearchDFA {
+    public static final int NO_MATCH = -1;
+    public static final int GAVE_UP = -2;
+
+    private static final int MARK = -1;
+    private static final int INJECTING = 1;
+    private static final int MAX_CACHE_RESETS = 3;
+    private static final int NODE_OVERHEAD_BYTES = 64;
+
+    private final CompiledNFA nfa;
+    private final CharClasses classes;
+    private final long cacheCapacity;
+    private final Map<Node, Node> cache = new HashMap<>();
+    private final SparseSet seen;
+    private int[] buffer = new int[16];
+    private int length;
+    private Node startNode;
+    private long cacheBytes;
+    // Set only while the engine is timing a call with metrics enabled
+    MatchCounters counters;
+
+    public SearchDFA(CompiledNFA nfa) {
+        this(nfa, LazyDFA.DEFAULT_CACHE_CAPACITY);
+    }
+
+    public SearchDFA(CompiledNFA nfa, long cacheCapacity) {
+        this.nfa = nfa;
+        this.classes = nfa.getCharClasses();
+        this.cacheCapacity = cacheCapacity;
+        this.seen = new SparseSet(nfa.getStateCount());
+    }
+
+    // Returns the end of the leftmost-longest match starting at or after from,
+    // NO_MATCH if there is none, or GAVE_UP if the state cache kept overflowing.
+    public int findEnd(CharSequence text, int from) {
+        return findEnd(text, from, Integer.MAX_VALUE);
+    }
+
+    // Same, for matches starting before startLimit (which must exceed from).
+    // No thread starts after that, so the scan ends once the earlier ones die.
+    public int findEnd(CharSequence text, int from, int startLimit) {
+        int resets = 0;
+        if (startNode == null) {
+            startNode = startNode();
+        }
+        Node current = startNode;
+        int lastEnd = current.matching ? from : NO_MATCH;
+
+        for (int i = from; i < text.length(); i++) {
+            if (i == startLimit - 1) {
+                current = withoutInjection(current);
+            }
+            int classId = classes.classOf(text.charAt(i));
+            Node next = current.next != null ? current.next[classId] : null;
+            if (counters != null) {
+                counters.dfaTransitions++;
+            }
+            if (next == null) {
+                if (counters != null) {
+                    counters.dfaMisses++;
+                }
+                if (cacheBytes > cacheCapacity) {
+                    if (++resets > MAX_CACHE_RESETS) {
+                        return GAVE_UP;
+                    }
+                    current = resetCache(current);
+                }
+                next = computeTransition(current, classId);
+            }
+            if (next.dead) {
+                break;
+            }
+            if (next.matching) {
+                lastEnd = i + 1;
+            }
+            current = next;
+        }
+        return lastEnd;
+    }
+
+    private Node startNode() {
+        length = 0;
+        append(INJECTING);
+        seen.clear();
+        int groupStart = length;
+        appendClosure(nfa.getStart());
+        closeGroup(groupStart);
+        return intern();
+    }
+
+    private Node computeTransition(Node from, int classId) {
+        int[] key = from.key;
+        length = 0;
+        append(0);
+        seen.clear();
+
+        // Step every group in priority order; earlier groups claim states first
+        int i = 1;
+        while (i < key.length) {
+            int groupStart = length;
+            for (; key[i] != MARK; i++) {
+                int end = nfa.transitionsEnd(key[i]);
+                for (int edge = nfa.transitionsStart(key[i]); edge < end && nfa.label(edge) <= classId; edge++) {
+                    if (nfa.label(edge) == classId) {
+                        appendClosure(nfa.target(edge));
+                    }
+                }
+            }
+            i++;
+            closeGroup(groupStart);
+        }
+
+        // A thread starting at the next position has the lowest priority
+        if (key[0] == INJECTING) {
+            buffer[0] = INJECTING;
+            int groupStart = length;
+            appendClosure(nfa.getStart());
+            closeGroup(groupStart);
+        }
+
+        Node target = intern();
+        if (from.next == null) {
+            from.next = new Node[classes.getClassCount()];
+        }
+        from.next[classId] = target;
+        return target;
+    }
+
+    // Appends the states of the closure not already in an earlier group
+    private void appendClosure(int state) {
+        int end = nfa.closureEnd(state);
+        for (int index = nfa.closureStart(state); index < end; index++) {
+            if (seen.add(nfa.closure(index))) append(nfa.closure(index));
+        }
+    }
+
+    // Sorts the group just written so equal state sets get equal keys, and
+    // drops it if it came out empty
+    private void closeGroup(int groupStart) {
+        if (length > groupStart) {
+            Arrays.sort(buffer, groupStart, length);
+            append(MARK);
+        }
+    }
+
+    // Cuts everything after the first accepting group and stops injecting new
+    // starts, then looks the resulting state up in the cache
+    private Node intern() {
+        boolean matching = false;
+        for (int i = 1; i < length && !matching; i++) {
+            if (buffer[i] != MARK && nfa.isAccepting(buffer[i])) {
+                matching = true;
+                int end = i;
+                while (buffer[end] != MARK) end++;
+                length = end + 1;
+                buffer[0] = 0;
+            }
+        }
+
+        Node probe = new Node(Arrays.copyOf(buffer, length), matching);
+        Node node = cache.get(probe);
+        if (node == null) {
+            node = probe;
+            cache.put(node, node);
+            if (counters != null) {
+                counters.dfaStatesBuilt++;
+            }
+            cacheBytes += NODE_OVERHEAD_BYTES + 4L * (length + classes.getClassCount());
+        }
+        return node;
+    }
+
+    // The same groups, but no new thread starts at the next position
+    private Node withoutInjection(Node node) {
+        if (node.key[0] != INJECTING) {
+            return node;
+        }
+        if (node.withoutInjection == null) {
+            int[] key = node.key.clone();
+            key[0] = 0;
+            Node probe = new Node(key, node.matching);
+            Node cached = cache.get(probe);
+            if (cached == null) {
+                cached = probe;
+                cache.put(cached, cached);
+                if (counters != null) {
+                    counters.dfaStatesBuilt++;
+                }
+                cacheBytes += NODE_OVERHEAD_BYTES + 4L * (key.length + classes.getClassCount());
+            }
+            node.withoutInjection = cached;
+        }
+        return node.withoutInjection;
+    }
+
+    private Node resetCache(Node current) {
+        cache.clear();
+        cacheBytes = 0;
+        if (counters != null) {
+            counters.dfaCacheResets++;
+        }
+        startNode = null;
+        Node copy = new Node(current.key, current.matching);
+        cache.put(copy, copy);
+        return copy;
+    }
+
+    private void append(int value) {
+        if (length == buffer.length) {
+            buffer = Arrays.copyOf(buffer, length * 2);
+        }
+        buffer[length++] = value;
+    }
+
+    private static final class Node {
+        final int[] key;
+        final boolean matching;
+        final boolean dead;
+        final int hash;
+        Node[] next;
+        Node withoutInjection;
+
+        Node(int[] key, boolean matching) {
+            this.key = key;
+            this.matching = matching;
+            this.dead = key.length == 1 && key[0] != INJECTING;
+            this.hash = Arrays.hashCode(key);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Node && Arrays.equals(key, ((Node) o).key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package lite_regex;
+
+// Set of small ints with O(1) add, contains and clear, iterated in insertion
+// order. Used for the active state lists so a match step allocates nothing.
+class SparseSet {
+    private final int[] dense;
+    private final int[] sparse;
+    private int size;
+
+    SparseSet(int capacity) {
+        this.dense = new int[capacity];
+        this.sparse = new int[capacity];
+    }
+
+    boolean contains(int value) {
+        int index = sparse[value];
+        return index < size && dense[index] == value;
+    }
+
+    boolean add(int value) {
+        if (contains(value)) {
+            return false;
+        }
+        dense[size] = value;
+        sparse[value] = size++;
+        return true;
+    }
+
+    int get(int index) {
+        return dense[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Keeps only the first newSize values in insertion order
+    void truncate(int newSize) {
+        size = Math.min(size, newSize);
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,113 @@
+package lite_regex;
+
+import java.util.Arrays;
+
+// A state of an NFA under construction (see NFABuilder). Edges go into small
+// growable arrays; NFA.freeze copies the finished graph into flat int arrays
+// and the State objects are dropped. Ids only need to be unique within one
+// automaton; whoever builds the automaton hands them out (see
+// NFABuilder.newState), so compilations running on different threads never
+// share a counter.
+public class State {
+    private static final int[] NO_LABELS = new int[0];
+    private static final State[] NO_STATES = new State[0];
+
+    private final int id;
+    // Char edge i goes to targets[i] on class labels[i]
+    private int[] labels = NO_LABELS;
+    private State[] targets = NO_STATES;
+    private int transitionCount;
+    private State[] epsilonTransitions = NO_STATES;
+    private int epsilonCount;
+    private boolean isAccepting;
+    private int patternId;
+    private CountedRepetition repetition;
+
+    public State(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void addTransition(int classId, State target) {
+        if (transitionCount == labels.length) {
+            labels = Arrays.copyOf(labels, Math.max(2, 2 * transitionCount));
+            targets = Arrays.copyOf(targets, labels.length);
+        }
+        labels[transitionCount] = classId;
+        targets[transitionCount++] = target;
+    }
+
+    public void addEpsilonTransition(State target) {
+        for (int i = 0; i < epsilonCount; i++) {
+            if (epsilonTransitions[i] == target) {
+                return;
+            }
+        }
+        if (epsilonCount == epsilonTransitions.length) {
+            epsilonTransitions = Arrays.copyOf(epsilonTransitions, Math.max(2, 2 * epsilonCount));
+        }
+        epsilonTransitions[epsilonCount++] = target;
+    }
+
+    int getTransitionCount() {
+        return transitionCount;
+    }
+
+    int getTransitionLabel(int index) {
+        return labels[index];
+    }
+
+    State getTransitionTarget(int index) {
+        return targets[index];
+    }
+
+    int getEpsilonCount() {
+        return epsilonCount;
+    }
+
+    State getEpsilonTransition(int index) {
+        return epsilonTransitions[index];
+    }
+
+    public void setAccepting(boolean accepting) {
+        this.isAccepting = accepting;
+    }
+
+    public boolean isAccepting() {
+        return isAccepting;
+    }
+
+    // Which pattern an accepting state belongs to when several are run together
+    public void setPatternId(int patternId) {
+        this.patternId = patternId;
+    }
+
+    public int getPatternId() {
+        return patternId;
+    }
+
+    // Set on the state that ends each iteration of a counted repetition
+    void setRepetition(CountedRepetition repetition) {
+        this.repetition = repetition;
+    }
+
+    CountedRepetition getRepetition() {
+        return repetition;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        State state = (State) o;
+        return id == state.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(id);
+    }
+}
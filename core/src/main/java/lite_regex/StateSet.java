@@ -0,0 +1,38 @@
+package lite_regex;
+
+import java.util.Arrays;
+
+// A set of NFA states as a sorted int[], compared by content: what a DFA
+// state stands for, and the key DFABuilder and LazyDFA look it up by.
+final class StateSet {
+    private final int[] states;
+    private final int hash;
+
+    StateSet(int[] states) {
+        this.states = states;
+        this.hash = Arrays.hashCode(states);
+    }
+
+    int size() {
+        return states.length;
+    }
+
+    int get(int index) {
+        return states[index];
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof StateSet && Arrays.equals(states, ((StateSet) obj).states);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(states);
+    }
+}
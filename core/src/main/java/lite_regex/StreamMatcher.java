@@ -0,0 +1,246 @@
+package lite_regex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+// Searches input that arrives in chunks, without ever holding it as a String.
+// The Pike VM's threads carry over from one feed() to the next, and each
+// leftmost-longest match is reported as soon as no live thread can extend it,
+// with the same non-overlapping semantics as RegexEngine.findAll. Offsets are
+// counted in chars from the start of the stream (after decoding, for bytes).
+//
+// Only the chars after the end of a not yet reported match are kept: once it
+// is reported the search resumes at its end, so they have to be read again.
+// Create one per stream with RegexEngine.streamMatcher; not thread-safe.
+public class StreamMatcher {
+    public interface MatchListener {
+        void onMatch(long start, long end);
+    }
+
+    private static final int BYTE_BUFFER_SIZE = 8192;
+    // Positions are ints relative to base, rebased once they get this large
+    private static final int REBASE_THRESHOLD = 1 << 30;
+
+    private final PikeSearch search;
+    private final CharClasses classes;
+    private final MatchListener listener;
+    private final CharsetDecoder decoder;
+    private final ByteBuffer bytes = ByteBuffer.allocate(BYTE_BUFFER_SIZE);
+    private final CharBuffer decoded = CharBuffer.allocate(BYTE_BUFFER_SIZE);
+
+    private long base;
+    // Position of the next char to process
+    private int pos;
+    private int bestStart = -1;
+    private int bestEnd = -1;
+    // Chars at positions [windowStart, windowEnd), kept while a match is pending
+    private char[] window = new char[64];
+    private int windowStart;
+    private int windowEnd;
+
+    StreamMatcher(PikeSearch search, MatchListener listener, Charset charset) {
+        this.search = search;
+        this.classes = search.charClasses();
+        this.listener = listener;
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        reset();
+    }
+
+    public void feed(char[] chars, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > chars.length) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + (offset + length)
+                    + ") outside array of length " + chars.length);
+        }
+        for (int i = offset; i < offset + length; i++) {
+            consume(chars[i]);
+        }
+    }
+
+    public void feed(CharSequence chars) {
+        for (int i = 0; i < chars.length(); i++) {
+            consume(chars.charAt(i));
+        }
+    }
+
+    // Decodes and consumes every remaining byte. A multi-byte sequence split
+    // across buffers is held back until the rest of it arrives.
+    public void feed(ByteBuffer input) {
+        while (input.hasRemaining()) {
+            int count = Math.min(input.remaining(), bytes.remaining());
+            int limit = input.limit();
+            input.limit(input.position() + count);
+            bytes.put(input);
+            input.limit(limit);
+
+            bytes.flip();
+            decode(false);
+            bytes.compact();
+        }
+    }
+
+    // Reads the channel to its end, then calls finish()
+    public void scan(ReadableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BYTE_BUFFER_SIZE);
+        while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            feed(buffer);
+            buffer.clear();
+        }
+        finish();
+    }
+
+    public void scan(InputStream in) throws IOException {
+        scan(Channels.newChannel(in));
+    }
+
+    // Ends the stream: reports the matches still pending, then resets so
+    // the matcher can be used for another stream
+    public void finish() {
+        bytes.flip();
+        decode(true);
+        decoded.clear();
+        decoder.flush(decoded);
+        decoded.flip();
+        feed(decoded);
+
+        while (bestStart >= 0) {
+            // Nothing can extend the pending match any more
+            search.clearThreads();
+            settle();
+            replay();
+        }
+        reset();
+    }
+
+    // Chars consumed so far, i.e. the offset of the next one
+    public long position() {
+        return base + pos;
+    }
+
+    private void reset() {
+        bytes.clear();
+        decoder.reset();
+        base = 0;
+        pos = 0;
+        bestStart = -1;
+        bestEnd = -1;
+        windowStart = 0;
+        windowEnd = 0;
+        search.clearThreads();
+        search.addThread(0);
+        settle();
+    }
+
+    private void decode(boolean endOfInput) {
+        CoderResult result;
+        do {
+            decoded.clear();
+            result = decoder.decode(bytes, decoded, endOfInput);
+            decoded.flip();
+            feed(decoded);
+        } while (result.isOverflow());
+    }
+
+    // Takes the next char of the stream
+    private void consume(char c) {
+        if (pos >= REBASE_THRESHOLD) {
+            rebase();
+        }
+        if (bestStart >= 0) {
+            append(c);
+        } else {
+            // Nothing before here can be read again
+            windowStart = pos + 1;
+            windowEnd = pos + 1;
+        }
+        advance(c);
+        replay();
+    }
+
+    private void advance(char c) {
+        search.step(classes.classOf(c));
+        pos++;
+        if (bestStart < 0) {
+            search.addThread(pos);
+        }
+        settle();
+    }
+
+    // Records an accepting thread and reports the pending match once no
+    // thread can extend it. The search then restarts at the match's end
+    // (one char later after an empty match), which may rewind pos.
+    private void settle() {
+        while (true) {
+            int start = search.acceptingStart();
+            if (start >= 0) {
+                bestStart = start;
+                bestEnd = pos;
+            }
+            if (bestStart < 0 || search.hasThreads()) {
+                return;
+            }
+            listener.onMatch(base + bestStart, base + bestEnd);
+            boolean empty = bestStart == bestEnd;
+            pos = bestEnd;
+            bestStart = -1;
+            bestEnd = -1;
+            search.clearThreads();
+            if (empty) {
+                return; // the next advance() adds the thread one char later
+            }
+            search.addThread(pos);
+        }
+    }
+
+    // Processes again the kept chars a restart rewound over
+    private void replay() {
+        while (pos < windowEnd) {
+            advance(window[pos - windowStart]);
+        }
+    }
+
+    private void append(char c) {
+        if (windowEnd - windowStart == window.length) {
+            // Chars before the pending match's end are never read again
+            int keep = windowEnd - bestEnd;
+            char[] target = keep * 2 > window.length ? new char[window.length * 2] : window;
+            System.arraycopy(window, bestEnd - windowStart, target, 0, keep);
+            window = target;
+            windowStart = bestEnd;
+        }
+        window[windowEnd - windowStart] = c;
+        windowEnd++;
+    }
+
+    // Shifts every stored position down so pos stays far from overflowing
+    private void rebase() {
+        int shift = pos;
+        int earliest = search.earliestStart();
+        if (earliest >= 0) shift = Math.min(shift, earliest);
+        if (bestStart >= 0) shift = Math.min(shift, bestStart);
+        shift = Math.min(shift, windowStart);
+        if (shift == 0 && pos == Integer.MAX_VALUE - 1) {
+            throw new IllegalStateException("A single match attempt spans more than "
+                    + Integer.MAX_VALUE + " chars");
+        }
+        search.shiftStarts(shift);
+        if (bestStart >= 0) {
+            bestStart -= shift;
+            bestEnd -= shift;
+        }
+        windowStart -= shift;
+        windowEnd -= shift;
+        pos -= shift;
+        base += shift;
+    }
+}
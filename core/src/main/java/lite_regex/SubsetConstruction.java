@@ -0,0 +1,74 @@
+package lite_regex;
+
+import java.util.Arrays;
+
+// The two steps of the subset construction over an NFA: the epsilon closure
+// of the start state, and the set reached from a DFA state on one class.
+// Sets only keep the states that consume a char or accept, since the others
+// make no difference to where the DFA goes next. The scratch space is reused
+// from call to call, so an instance is single-threaded.
+final class SubsetConstruction {
+    private final NFA nfa;
+    private final SparseSet reached;
+    private int[] stack = new int[16];
+
+    SubsetConstruction(NFA nfa) {
+        this.nfa = nfa;
+        this.reached = new SparseSet(nfa.getStateCount());
+    }
+
+    StateSet start() {
+        reached.clear();
+        return close(push(0, nfa.getStart()));
+    }
+
+    // Null when nothing is reached, so the DFA is dead
+    StateSet step(StateSet from, int classId) {
+        reached.clear();
+        int top = 0;
+        for (int i = 0; i < from.size(); i++) {
+            int state = from.get(i);
+            int end = nfa.transitionsEnd(state);
+            for (int edge = nfa.transitionsStart(state); edge < end && nfa.label(edge) <= classId; edge++) {
+                if (nfa.label(edge) == classId) {
+                    top = push(top, nfa.target(edge));
+                }
+            }
+        }
+        if (top == 0) {
+            return null;
+        }
+        StateSet next = close(top);
+        return next.size() > 0 ? next : null;
+    }
+
+    private StateSet close(int top) {
+        while (top > 0) {
+            int state = stack[--top];
+            if (reached.add(state)) {
+                for (int edge = nfa.epsilonsStart(state); edge < nfa.epsilonsEnd(state); edge++) {
+                    top = push(top, nfa.epsilonTarget(edge));
+                }
+            }
+        }
+        int[] states = new int[reached.size()];
+        int count = 0;
+        for (int i = 0; i < reached.size(); i++) {
+            int state = reached.get(i);
+            if (nfa.transitionsEnd(state) > nfa.transitionsStart(state) || nfa.isAccepting(state)) {
+                states[count++] = state;
+            }
+        }
+        int[] kept = Arrays.copyOf(states, count);
+        Arrays.sort(kept);
+        return new StateSet(kept);
+    }
+
+    private int push(int top, int state) {
+        if (top == stack.length) {
+            stack = Arrays.copyOf(stack, 2 * top);
+        }
+        stack[top] = state;
+        return top + 1;
+    }
+}
@@ -148,6 +148,19 @@ public class lexer {
                 case 'd':
                     tokens.add(new RegexToken(RegexToken.TokenType.DIGIT, 'd', pos));
                     break;
+                // Control chars, so [^\n] and \t work as in java.util.regex
+                case 'n':
+                    tokens.add(new RegexToken(RegexToken.TokenType.CHARACTER, '\n', pos));
+                    break;
+                case 'r':
+                    tokens.add(new RegexToken(RegexToken.TokenType.CHARACTER, '\r', pos));
+                    break;
+                case 't':
+                    tokens.add(new RegexToken(RegexToken.TokenType.CHARACTER, '\t', pos));
+                    break;
+                case 'f':
+                    tokens.add(new RegexToken(RegexToken.TokenType.CHARACTER, '\f', pos));
+                    break;
                 default:
                     // Treat other escaped chars as literals
                     tokens.add(new RegexToken(RegexToken.TokenType.CHARACTER, escapedChar, pos));
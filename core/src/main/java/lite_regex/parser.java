@@ -1,13 +1,13 @@
 package lite_regex;
 
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
 
 public class parser {
     private final List<RegexToken> tokens;
     private int position;
     private final String originalPattern;
+    private int groupCount;
 
     public parser(List<RegexToken> tokens, String originalPattern) {
         this.tokens = tokens;
@@ -32,6 +32,11 @@ public class parser {
         }
     }
 
+    // Capturing groups seen by parse()
+    public int getGroupCount() {
+        return groupCount;
+    }
+
     private void throwParseError(String message, String details) {
         int errorPos = position < tokens.size() ? tokens.get(position).getPosition() : originalPattern.length();
         throw new RegexException("Regex parse error: " + message, 
@@ -76,7 +81,9 @@ public class parser {
                 factor = new ConcatenationNode(factor, nextFactor);
             }
         }
-        return factor != null ? factor : new CharacterNode('\0');
+        // An empty branch or group, as in (a|) or (), matches only the empty
+        // string; zero copies of anything say so to every later pass
+        return factor != null ? factor : new QuantifierNode(new CharacterNode('\0'), 0, 0);
     }
 
     private RegexNode parseFactor() {
@@ -104,10 +111,11 @@ public class parser {
         position++; // skip {
         
         int min = parseNumber();
-        Integer max = null;
+        Integer max = min; // {n} means exactly n
         
         if (position < tokens.size() && tokens.get(position).getType() == RegexToken.TokenType.COMMA) {
             position++; // skip ,
+            max = null;
             if (position < tokens.size() && tokens.get(position).getType() != RegexToken.TokenType.RBRACE) {
                 max = parseNumber();
             }
@@ -163,6 +171,13 @@ public class parser {
             case DIGIT:
                 return new DigitNode();
             case CHARACTER:
+                // A code point past the BMP is one atom, so a quantifier after it repeats both halves
+                if (Character.isHighSurrogate(token.getValue()) && position < tokens.size()
+                        && tokens.get(position).getType() == RegexToken.TokenType.CHARACTER
+                        && Character.isLowSurrogate(tokens.get(position).getValue())) {
+                    return new ConcatenationNode(new CharacterNode(token.getValue()),
+                            new CharacterNode(tokens.get(position++).getValue()));
+                }
                 return new CharacterNode(token.getValue());
             case DOT:
                 // Check if this dot was escaped
@@ -171,13 +186,22 @@ public class parser {
                 }
                 return new AnyCharNode();
             case LPAREN:
+                int openPos = position - 1;
+                // (?:...) groups without capturing
+                boolean capturing = !isNonCapturingMark();
+                int index = 0;
+                if (capturing) {
+                    index = ++groupCount;
+                } else {
+                    position += 2;
+                }
                 RegexNode expr = parseExpression();
                 if (position >= tokens.size() || tokens.get(position).getType() != RegexToken.TokenType.RPAREN) {
                     throwParseError("Missing closing parenthesis", 
-                                  "No matching ')' for opening '(' at position " + (position-1));
+                                  "No matching ')' for opening '(' at position " + openPos);
                 }
                 position++;
-                return expr;
+                return capturing ? new GroupNode(expr, index) : expr;
             case LBRACKET:
                 return parseCharacterClass();
             case ESCAPE:
@@ -196,9 +220,21 @@ public class parser {
         // This line should never be reached because the default case throws an exception
         throw new AssertionError("Unreachable code");
     }
+    private boolean isNonCapturingMark() {
+        return position + 1 < tokens.size()
+                && tokens.get(position).getType() == RegexToken.TokenType.QUESTION
+                && tokens.get(position + 1).getType() == RegexToken.TokenType.CHARACTER
+                && tokens.get(position + 1).getValue() == ':';
+    }
+
     private RegexNode parseCharacterClass() {
         boolean negated = false;
-        Set<Character> characters = new HashSet<>();
+        // [lo, hi] pairs as listed; CharacterClassNode sorts and merges them
+        char[] ranges = new char[16];
+        int length = 0;
+        // The same for members past the BMP, as code points
+        int[] supplementary = new int[4];
+        int supplementaryLength = 0;
         int classStartPos = position - 1; // Position of the '['
 
         // Check for negation
@@ -209,27 +245,49 @@ public class parser {
 
         while (position < tokens.size() && tokens.get(position).getType() != RegexToken.TokenType.RBRACKET) {
             RegexToken current = tokens.get(position);
-            
-            // Handle character ranges (e.g., a-z)
-            if (position + 2 < tokens.size() && 
-                tokens.get(position + 1).getType() == RegexToken.TokenType.DASH) {
-                char start = current.getValue();
-                char end = tokens.get(position + 2).getValue();
-                
-                if (start > end) {
-                    throwParseError("Invalid character range", 
-                                  "Range '" + start + "-" + end + "' is invalid (start > end)");
+            char[] item;
+
+            if (current.getType() == RegexToken.TokenType.DIGIT) {
+                // \d and \w inside a class add all their chars
+                item = CharClasses.DIGIT;
+                position++;
+            } else if (current.getType() == RegexToken.TokenType.WORD) {
+                item = CharClasses.WORD_CHAR;
+                position++;
+            } else {
+                int start = classMember();
+                int end = start;
+                if (position + 1 < tokens.size()
+                        && tokens.get(position).getType() == RegexToken.TokenType.DASH) {
+                    // Handle character ranges (e.g., a-z)
+                    RegexToken endToken = tokens.get(++position);
+                    end = classMember();
+                    if (start > end || endToken.getType() == RegexToken.TokenType.DIGIT
+                            || endToken.getType() == RegexToken.TokenType.WORD) {
+                        throwParseError("Invalid character range",
+                                      "Range '" + Character.toString(start) + "-" + Character.toString(end)
+                                      + "' is invalid (start > end)");
+                    }
                 }
-                
-                for (char c = start; c <= end; c++) {
-                    characters.add(c);
+                if (end <= Character.MAX_VALUE) {
+                    item = new char[] {(char) start, (char) end};
+                } else {
+                    if (supplementaryLength + 2 > supplementary.length) {
+                        supplementary = Arrays.copyOf(supplementary, 2 * supplementary.length);
+                    }
+                    supplementary[supplementaryLength++] = Math.max(start, Character.MIN_SUPPLEMENTARY_CODE_POINT);
+                    supplementary[supplementaryLength++] = end;
+                    // A range from the BMP takes its chars there too, but not the surrogates
+                    item = start <= Character.MAX_VALUE
+                            ? CharRanges.intersect(new char[] {(char) start, Character.MAX_VALUE}, CharClasses.ANY_CHAR)
+                            : CharRanges.EMPTY;
                 }
-                position += 3;
-            } else {
-                // Single character
-                characters.add(current.getValue());
-                position++;
             }
+            if (length + item.length > ranges.length) {
+                ranges = Arrays.copyOf(ranges, Math.max(2 * ranges.length, length + item.length));
+            }
+            System.arraycopy(item, 0, ranges, length, item.length);
+            length += item.length;
         }
         
         if (position >= tokens.size() || tokens.get(position).getType() != RegexToken.TokenType.RBRACKET) {
@@ -238,6 +296,19 @@ public class parser {
         }
         position++;
         
-        return new CharacterClassNode(characters, negated);
+        return new CharacterClassNode(Arrays.copyOf(ranges, length),
+                Arrays.copyOf(supplementary, supplementaryLength), negated);
+    }
+
+    // The class member at position, a surrogate pair being one code point
+    // as in parseBase, and moves past it
+    private int classMember() {
+        char c = tokens.get(position++).getValue();
+        if (Character.isHighSurrogate(c) && position < tokens.size()
+                && tokens.get(position).getType() == RegexToken.TokenType.CHARACTER
+                && Character.isLowSurrogate(tokens.get(position).getValue())) {
+            return Character.toCodePoint(c, tokens.get(position++).getValue());
+        }
+        return c;
     }
-}
\ No newline at end of file
+}
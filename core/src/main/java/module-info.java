@@ -0,0 +1,11 @@
+/**
+ * The regex engine. Headless: it needs nothing beyond java.base, so it can
+ * be jlinked into a minimal runtime. java.management is only needed by
+ * RegexMetricsJmx, when metrics are published over JMX; without it in the
+ * module graph RegexMetricsJmx throws IllegalStateException.
+ */
+module lite_regex {
+    requires static java.management;
+
+    exports lite_regex;
+}
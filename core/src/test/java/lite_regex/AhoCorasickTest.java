@@ -0,0 +1,116 @@
+package lite_regex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class AhoCorasickTest {
+
+    private static AhoCorasick automaton(String pattern) {
+        return AhoCorasick.fromAst(new parser(new lexer(pattern).tokenize(), pattern).parse());
+    }
+
+    private static void assertFind(AhoCorasick automaton, String text, int from, int startLimit,
+                                   int start, int end) {
+        RegexMatch match = automaton.find(text, from, startLimit);
+        assertNotNull(match, text);
+        assertEquals(start, match.start(), text);
+        assertEquals(end, match.end(), text);
+    }
+
+    // The longest literal at the leftmost start that has one, the hard way
+    private static int[] expected(String[] literals, String text, int from, int startLimit) {
+        for (int start = from; start <= text.length() && start < startLimit; start++) {
+            int longest = -1;
+            for (String literal : literals) {
+                if (text.startsWith(literal, start)) {
+                    longest = Math.max(longest, literal.length());
+                }
+            }
+            if (longest >= 0) {
+                return new int[] {start, start + longest};
+            }
+        }
+        return null;
+    }
+
+    @Test
+    void onlyAlternationsOfLiteralsQualify() {
+        assertNotNull(automaton("foo|bar"));
+        assertNotNull(automaton("(?:foo|bar|baz)"));
+        assertNull(automaton("foo"));
+        assertNull(automaton("fo+|bar"));
+        assertNull(automaton("f[oa]o|bar"));
+        assertEquals(3, automaton("he|she|his").getLiteralCount());
+    }
+
+    @Test
+    void matchesWholeLiteralsOnly() {
+        AhoCorasick automaton = automaton("he|she|hers");
+        assertTrue(automaton.matches("she"));
+        assertTrue(automaton.matches("hers"));
+        assertFalse(automaton.matches("her"));
+        assertFalse(automaton.matches("shee"));
+        assertFalse(automaton.matches(""));
+    }
+
+    @Test
+    void findIsLeftmostLongest() {
+        AhoCorasick automaton = automaton("he|she|hers|his");
+        assertFind(automaton, "ushers", 0, Integer.MAX_VALUE, 1, 4);
+        assertFind(automaton, "ushers", 2, Integer.MAX_VALUE, 2, 6);
+        // bc ends first, but abcd starts further left
+        assertFind(automaton("abcd|bc"), "xabcd", 0, Integer.MAX_VALUE, 1, 5);
+        assertFind(automaton("a|ab|abc"), "zzabcab", 0, Integer.MAX_VALUE, 2, 5);
+        assertNull(automaton.find("hxsxe", 0));
+    }
+
+    @Test
+    void startLimitBoundsTheStart() {
+        AhoCorasick automaton = automaton("abcd|bc");
+        assertFind(automaton, "xabcd", 0, 2, 1, 5);
+        assertNull(automaton.find("xabcd", 0, 1));
+        assertFind(automaton, "xxbcd", 0, 3, 2, 4);
+        assertNull(automaton.find("xxbcd", 0, 2));
+    }
+
+    @Test
+    void agreesWithBruteForce() {
+        Random random = new Random(7);
+        for (int round = 0; round < 300; round++) {
+            String[] literals = new String[2 + random.nextInt(5)];
+            StringBuilder pattern = new StringBuilder();
+            for (int i = 0; i < literals.length; i++) {
+                literals[i] = randomString(random, 1 + random.nextInt(4));
+                pattern.append(i == 0 ? "" : "|").append(literals[i]);
+            }
+            AhoCorasick automaton = automaton(pattern.toString());
+            String text = randomString(random, random.nextInt(30));
+            int from = random.nextInt(text.length() + 1);
+            int startLimit = random.nextBoolean() ? Integer.MAX_VALUE : from + random.nextInt(10);
+            int[] expected = expected(literals, text, from, startLimit);
+            RegexMatch match = automaton.find(text, from, startLimit);
+            String message = pattern + " in " + text + " from " + from;
+            if (expected == null) {
+                assertNull(match, message);
+            } else {
+                assertNotNull(match, message);
+                assertEquals(expected[0], match.start(), message);
+                assertEquals(expected[1], match.end(), message);
+            }
+        }
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('a' + random.nextInt(3)));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package lite_regex;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class CaptureTest {
+
+    // Checks the groups of pattern's first match in input, through
+    // RegexMatch and through each extraction strategy that applies, since
+    // the engine only ever runs the one it picks
+    private static void assertGroups(String pattern, String input, int... expected) {
+        RegexEngine engine = new RegexEngine(pattern);
+        RegexMatch match = engine.find(input);
+        assertNotNull(match, pattern + " in " + input);
+        int[] groups = new int[2 * (match.groupCount() + 1)];
+        for (int g = 0; g <= match.groupCount(); g++) {
+            groups[2 * g] = match.start(g);
+            groups[2 * g + 1] = match.end(g);
+        }
+        String message = pattern + " on " + input;
+        assertArrayEquals(expected, groups, message);
+
+        CaptureProgram program = program(engine);
+        int start = match.start();
+        int end = match.end();
+        assertArrayEquals(expected, new CaptureVM(program).capture(input, start, end), "vm: " + message);
+        if (BoundedBacktracker.fits(program, end - start)) {
+            assertArrayEquals(expected, new BoundedBacktracker().capture(program, input, start, end),
+                    "backtracker: " + message);
+        }
+        OnePassDFA onePass = OnePassDFA.build(program);
+        if (onePass != null) {
+            assertArrayEquals(expected, onePass.capture(input, start, end), "one-pass: " + message);
+        }
+    }
+
+    private static CaptureProgram program(RegexEngine engine) {
+        return CaptureProgram.compile(engine.getPattern(), engine.parts().nfa.getCharClasses(), false);
+    }
+
+    @Test
+    void leftAlternativeIsPreferred() {
+        assertGroups("(a|ab)(c|bcd)(d*)", "abcd", 0, 4, 0, 1, 1, 4, 4, 4);
+        assertGroups("(a|ab)(b*)", "ab", 0, 2, 0, 1, 1, 2);
+        assertGroups("(b|a|ab)+", "aab", 0, 3, 2, 3);
+    }
+
+    @Test
+    void groupOutsideTheChosenBranchIsUnset() {
+        assertGroups("(a)|(b)", "b", 0, 1, -1, -1, 0, 1);
+        assertGroups("x(a(b)?)+", "xaab", 0, 4, 2, 4, 3, 4);
+    }
+
+    @Test
+    void emptyIterationSetsGroupsOnce() {
+        // A loop whose body can match empty still runs once
+        assertGroups("(a*)*", "b", 0, 0, 0, 0);
+        assertGroups("(a|)+b", "b", 0, 1, 0, 0);
+        // After a non-empty iteration no empty one follows in the same
+        // step, so the group keeps the last chars consumed (java.util.regex,
+        // which backtracks, reports one more empty iteration: 2,2)
+        assertGroups("(a*)*", "aa", 0, 2, 0, 2);
+        assertGroups("(a*)+", "aa", 0, 2, 0, 2);
+        assertGroups("(a|)+", "aa", 0, 2, 1, 2);
+    }
+
+    @Test
+    void countedLoopKeepsTheLastIteration() {
+        // Each of these is past the size at which {n,m} loops instead of copying
+        assertTrue(program(new RegexEngine("(ab){2500}")).hasLoops());
+        assertGroups("(ab){2500}", "ab".repeat(2500), 0, 5000, 4998, 5000);
+        assertGroups("x(a|bc){0,5000}y", "xabcay", 0, 6, 4, 5);
+        assertGroups("(a|b){1100,}(c)", "ab".repeat(600) + "c", 0, 1201, 1199, 1200, 1200, 1201);
+        assertGroups("(ab|a)(b*){5000}c", "abbc", 0, 4, 0, 2, 3, 3);
+    }
+
+    @Test
+    void countedLoopWithEmptyIterations() {
+        assertGroups("(a?){5000}", "aa", 0, 2, 2, 2);
+        assertNull(new RegexEngine("x(a|bc){2,5000}y").find("xay"));
+    }
+
+    @Test
+    void groupZeroNeedsNoCaptureProgram() {
+        RegexEngine engine = new RegexEngine("x(?:a{1,20}){300}");
+        assertEquals(0, engine.groupCount());
+        String input = "zzx" + "a".repeat(400);
+        RegexMatch match = engine.find(input);
+        assertEquals(2, match.start(0));
+        assertEquals(403, match.end(0));
+        assertEquals(input.substring(2), match.group(0));
+    }
+
+    @Test
+    void groupCountComesFromTheParser() {
+        // Copying this would take a million instructions
+        assertEquals(1, new RegexEngine("(a{1100}){1000}").groupCount());
+        assertEquals(3, new RegexEngine("(a)(?:b)((c)|d)").groupCount());
+    }
+
+    @Test
+    void tooManyCaptureStatesIsACompileError() {
+        assertThrows(RegexException.class, () -> new RegexEngine("((a{1,3000}){3000})"));
+        // Without groups no capture program is ever needed
+        new RegexEngine("(?:(?:a{1,3000}){3000})");
+    }
+
+    @Test
+    void corpus() throws IOException {
+        int cases = 0;
+        try (InputStream in = CaptureTest.class.getResourceAsStream("capture-corpus.tsv");
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t", -1);
+                String[] spans = fields[2].split(" ");
+                int[] expected = new int[2 * spans.length];
+                for (int i = 0; i < spans.length; i++) {
+                    String[] bounds = spans[i].split(",");
+                    expected[2 * i] = Integer.parseInt(bounds[0]);
+                    expected[2 * i + 1] = Integer.parseInt(bounds[1]);
+                }
+                assertGroups(fields[0], fields[1], expected);
+                cases++;
+            }
+        }
+        assertTrue(cases >= 400, "corpus has only " + cases + " cases");
+    }
+}
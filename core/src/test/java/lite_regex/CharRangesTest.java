@@ -0,0 +1,124 @@
+package lite_regex;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class CharRangesTest {
+
+    private static BitSet bits(char[] ranges) {
+        BitSet bits = new BitSet();
+        for (int i = 0; i < ranges.length; i += 2) {
+            bits.set(ranges[i], ranges[i + 1] + 1);
+        }
+        return bits;
+    }
+
+    // Sorted pairs that neither overlap nor touch
+    private static void assertCanonical(char[] ranges) {
+        assertEquals(0, ranges.length % 2);
+        for (int i = 0; i < ranges.length; i += 2) {
+            assertTrue(ranges[i] <= ranges[i + 1]);
+            if (i > 0) {
+                assertTrue(ranges[i] > ranges[i - 1] + 1);
+            }
+        }
+    }
+
+    private static char[] randomPairs(Random random) {
+        char[] pairs = new char[2 * random.nextInt(5)];
+        for (int i = 0; i < pairs.length; i += 2) {
+            // Mostly near the ends of the char range and each other
+            char lo = (char) (random.nextBoolean() ? random.nextInt(40) : Character.MAX_VALUE - random.nextInt(40));
+            char hi = (char) Math.min(Character.MAX_VALUE, lo + random.nextInt(8));
+            pairs[i] = lo;
+            pairs[i + 1] = hi;
+        }
+        return pairs;
+    }
+
+    @Test
+    void normalizeSortsAndMerges() {
+        assertArrayEquals(new char[] {'a', 'f', 'x', 'z'},
+                CharRanges.normalize(new char[] {'x', 'z', 'd', 'f', 'a', 'c', 'b', 'e'}, 8));
+        // Adjacent ranges merge too
+        assertArrayEquals(new char[] {'a', 'd'}, CharRanges.normalize(new char[] {'c', 'd', 'a', 'b'}, 4));
+        // Only the first length chars count
+        assertArrayEquals(new char[] {'a', 'a'}, CharRanges.normalize(new char[] {'a', 'a', 'z', 'z'}, 2));
+        assertArrayEquals(new char[] {0, Character.MAX_VALUE},
+                CharRanges.normalize(new char[] {Character.MAX_VALUE, Character.MAX_VALUE, 0, Character.MAX_VALUE - 1}, 4));
+    }
+
+    @Test
+    void negateCoversTheRest() {
+        assertArrayEquals(new char[] {0, Character.MAX_VALUE}, CharRanges.negate(CharRanges.EMPTY));
+        assertArrayEquals(CharRanges.EMPTY, CharRanges.negate(new char[] {0, Character.MAX_VALUE}));
+        assertArrayEquals(new char[] {0, '\t', '\u000B', Character.MAX_VALUE}, CharRanges.negate(new char[] {'\n', '\n'}));
+    }
+
+    @Test
+    void operationsAgreeWithBitSets() {
+        Random random = new Random(24);
+        for (int round = 0; round < 2000; round++) {
+            char[] aPairs = randomPairs(random);
+            char[] bPairs = randomPairs(random);
+            char[] a = CharRanges.normalize(aPairs, aPairs.length);
+            char[] b = CharRanges.normalize(bPairs, bPairs.length);
+            assertCanonical(a);
+            assertEquals(bits(aPairs), bits(a));
+
+            BitSet union = bits(a);
+            union.or(bits(b));
+            char[] unionRanges = CharRanges.union(a, b);
+            assertCanonical(unionRanges);
+            assertEquals(union, bits(unionRanges));
+
+            BitSet intersection = bits(a);
+            intersection.and(bits(b));
+            char[] intersectionRanges = CharRanges.intersect(a, b);
+            assertCanonical(intersectionRanges);
+            assertEquals(intersection, bits(intersectionRanges));
+
+            BitSet complement = bits(a);
+            complement.flip(0, Character.MAX_VALUE + 1);
+            char[] negated = CharRanges.negate(a);
+            assertCanonical(negated);
+            assertEquals(complement, bits(negated));
+        }
+    }
+
+    @Test
+    void classesAreParsedAsRanges() {
+        CharacterClassNode alphanumeric = (CharacterClassNode) parse("[a-zA-Z0-9]");
+        assertArrayEquals(new char[] {'0', '9', 'A', 'Z', 'a', 'z'}, alphanumeric.getRanges());
+        assertArrayEquals(CharClasses.WORD_CHAR, ((CharacterClassNode) parse("[\\w\\d_]")).getRanges());
+        CharacterClassNode notNewline = (CharacterClassNode) parse("[^\\n]");
+        assertTrue(notNewline.isNegated());
+        assertArrayEquals(new char[] {'\n', '\n'}, notNewline.getRanges());
+        assertArrayEquals(new char[] {0, '\t', '\u000B', '\uD7FF', '\uE000', Character.MAX_VALUE},
+                CharClasses.rangesOf(notNewline));
+    }
+
+    @Test
+    void partitionSeparatesWhatTheClassesTellApart() {
+        CharClasses classes = CharClasses.fromAst(parse("[a-f]x|[^d-z]"));
+        assertEquals(classes.classOf('a'), classes.classOf('c'));
+        assertNotEquals(classes.classOf('c'), classes.classOf('d'));
+        assertEquals(classes.classOf('d'), classes.classOf('f'));
+        assertNotEquals(classes.classOf('f'), classes.classOf('g'));
+        assertNotEquals(classes.classOf('x'), classes.classOf('w'));
+        assertEquals(classes.classOf('0'), classes.classOf('A'));
+        assertFalse(new RegexEngine("[^d-z]").matches("e"));
+        assertTrue(new RegexEngine("[^d-z]").matches("\uFFFF"));
+    }
+
+    private static RegexNode parse(String pattern) {
+        return new parser(new lexer(pattern).tokenize(), pattern).parse();
+    }
+}
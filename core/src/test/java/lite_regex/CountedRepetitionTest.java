@@ -0,0 +1,76 @@
+package lite_regex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class CountedRepetitionTest {
+
+    @Test
+    void hugeBoundNeedsNoScratchPerCount() {
+        // One config per count would be over a gigabyte here
+        RegexEngine engine = new RegexEngine("(?:ab|cd){1,5000000}");
+        assertTrue(engine.matches("ab"));
+        assertTrue(engine.matches("abcdab"));
+        assertFalse(engine.matches(""));
+        assertFalse(engine.matches("abc"));
+        assertTrue(engine.matches("ab".repeat(10000)));
+    }
+
+    @Test
+    void estimatedBytesDoNotGrowWithTheBound() {
+        long small = new RegexEngine("(?:ab|cd){1,5000}").getEstimatedBytes();
+        long huge = new RegexEngine("(?:ab|cd){1,500000000}").getEstimatedBytes();
+        // Only the five extra pattern chars differ
+        assertEquals(small + 10, huge);
+    }
+
+    @Test
+    void boundNearIntMaxCompiles() {
+        RegexEngine engine = new RegexEngine("a{0,1500000000}");
+        assertTrue(engine.matches(""));
+        assertTrue(engine.matches("aaa"));
+        assertFalse(engine.matches("ab"));
+    }
+
+    @Test
+    void lengthBoundsSaturateInsteadOfWrapping() {
+        RegexEngine engine = new RegexEngine("a{0,2000000000}b{0,2000000000}");
+        assertNull(engine.getMaxLength());
+        assertTrue(engine.matches("aabb"));
+        assertFalse(engine.matches("ba"));
+
+        RegexEngine longMin = new RegexEngine("a{2000000000}b{2000000000}");
+        assertEquals(Integer.MAX_VALUE, longMin.getMinLength());
+        assertFalse(longMin.matches("ab"));
+    }
+
+    @Test
+    void minBoundIsCounted() {
+        RegexEngine engine = new RegexEngine("x(?:ab){3,2000000000}y");
+        assertNull(engine.find("zzxababy"));
+        RegexMatch match = engine.find("zzxabababy");
+        assertEquals(2, match.start());
+        assertEquals(10, match.end());
+    }
+
+    @Test
+    void countedBodyRepeatedZeroTimesIsSkipped() {
+        RegexEngine engine = new RegexEngine("(?:a{5000}){0}b");
+        assertTrue(engine.matches("b"));
+        assertFalse(engine.matches("a".repeat(5000) + "b"));
+    }
+
+    @Test
+    void countedRepetitionAgreesWithCopies() {
+        // 5000 copies of the body are past the threshold, 50 are not
+        RegexEngine counted = new RegexEngine("(?:a|bc){2,5000}d");
+        RegexEngine copied = new RegexEngine("(?:a|bc){2,50}d");
+        for (String input : new String[] {"ad", "aad", "abcd", "bcbcd", "abd", "d", "bcabcaad", "aa"}) {
+            assertEquals(copied.matches(input), counted.matches(input), input);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package lite_regex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class CountedThreadsTest {
+
+    @Test
+    void keepsInsertionOrderAndDropsDuplicates() {
+        CountedThreads threads = new CountedThreads();
+        assertTrue(threads.add(3, 0, 7));
+        assertTrue(threads.add(3, 1, 8));
+        assertTrue(threads.add(1, 0, 9));
+        assertFalse(threads.add(3, 1, 10));
+        assertEquals(3, threads.size());
+        assertEquals(3, threads.state(1));
+        assertEquals(1, threads.count(1));
+        assertEquals(8, threads.start(1));
+    }
+
+    @Test
+    void truncatedThreadsCanBeAddedAgain() {
+        CountedThreads threads = new CountedThreads();
+        for (int i = 0; i < 100; i++) {
+            threads.add(i % 7, i, i);
+        }
+        threads.truncate(10);
+        assertEquals(10, threads.size());
+        assertFalse(threads.add(3, 3, 0));
+        assertTrue(threads.add(50 % 7, 50, 1));
+        assertEquals(11, threads.size());
+        assertEquals(1, threads.start(10));
+    }
+
+    @Test
+    void clearForgetsEveryThread() {
+        CountedThreads threads = new CountedThreads();
+        // Enough to grow the table several times, with truncations between
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 5000; i++) {
+                assertTrue(threads.add(i, 2_000_000_000 - i, i));
+            }
+            threads.truncate(1000);
+            threads.clear();
+            assertTrue(threads.isEmpty());
+        }
+        assertTrue(threads.add(0, 2_000_000_000, 0));
+    }
+}
@@ -0,0 +1,115 @@
+package lite_regex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class DenseDFATest {
+
+    private static DenseDFA unminimized(String pattern) {
+        NFA nfa = new RegexEngine(pattern).parts().nfa;
+        return DenseDFA.compile(new DFABuilder().build(nfa, 256));
+    }
+
+    // Counts include the dead state
+    private static void assertMinimalStates(String pattern, int expected) {
+        DenseDFA dfa = unminimized(pattern);
+        DenseDFA minimized = dfa.minimize();
+        assertEquals(expected, minimized.getStateCount(), pattern);
+        assertEquals(dfa.getStateCount(), minimized.getUnminimizedStateCount(), pattern);
+        // Minimizing twice changes nothing
+        assertEquals(expected, minimized.minimize().getStateCount(), pattern);
+    }
+
+    @Test
+    void minimizationMergesEquivalentStates() {
+        // Both first letters lead to the same suffix
+        assertMinimalStates("abc|xbc", 5);
+        assertMinimalStates("a(b|c)d|e(b|c)d", 5);
+        assertMinimalStates("ab*|cb*", 3);
+        assertMinimalStates("(ab|cb)*", 3);
+        assertMinimalStates("a[bc]*d|x[bc]*d", 4);
+    }
+
+    @Test
+    void minimalDfaIsLeftAlone() {
+        assertMinimalStates("a*", 2);
+        assertMinimalStates("(a|b)*abb", 5);
+        // The third letter from the end: 2^3 states and the dead one
+        assertMinimalStates("(a|b)*a(a|b)(a|b)", 9);
+        assertMinimalStates("foo|bar|baz|qux", 9);
+    }
+
+    @Test
+    void minimizedDfaAcceptsTheSameLanguage() {
+        Random random = new Random(11);
+        for (String pattern : new String[] {"abc|xbc", "(ab|cb)*", "a(b|c)*d|e(b|c)*d", "(a|b)*a(a|b)(a|b)"}) {
+            DenseDFA dfa = unminimized(pattern);
+            DenseDFA minimized = dfa.minimize();
+            RegexEngine engine = new RegexEngine(pattern);
+            for (int i = 0; i < 500; i++) {
+                String input = randomString(random, "abcdex", random.nextInt(8));
+                assertEquals(dfa.matches(input), minimized.matches(input), pattern + " on " + input);
+                assertEquals(engine.matches(input), minimized.matches(input), pattern + " on " + input);
+            }
+        }
+    }
+
+    @Test
+    void lazyAndDenseDfaAgree() {
+        Random random = new Random(5);
+        String[] atoms = {"a", "b", "c", "[ab]", "[^a]", ".", "(a|bc)", "(?:ab)"};
+        String[] quantifiers = {"", "", "*", "+", "?", "{2}", "{1,3}"};
+        int compared = 0;
+        for (int round = 0; round < 200; round++) {
+            StringBuilder pattern = new StringBuilder();
+            for (int i = 1 + random.nextInt(4); i > 0; i--) {
+                pattern.append(atoms[random.nextInt(atoms.length)]).append(quantifiers[random.nextInt(quantifiers.length)]);
+                if (random.nextInt(5) == 0) {
+                    pattern.append('|');
+                }
+            }
+            if (pattern.charAt(pattern.length() - 1) == '|') {
+                pattern.append('c');
+            }
+            NFA nfa = new RegexEngine(pattern.toString()).parts().nfa;
+            DFA full = new DFABuilder().build(nfa, 256);
+            if (full == null) {
+                continue;
+            }
+            DenseDFA dense = DenseDFA.compile(full).minimize();
+            LazyDFA lazy = new LazyDFA(nfa);
+            // Small enough to be cleared in the middle of longer inputs
+            LazyDFA starved = new LazyDFA(nfa, 600);
+            for (int i = 0; i < 50; i++) {
+                String input = randomString(random, "abcd", random.nextInt(12));
+                int expected = dense.matches(input) ? LazyDFA.MATCH : LazyDFA.NO_MATCH;
+                assertEquals(expected, lazy.matches(input), pattern + " on " + input);
+                int result = starved.matches(input);
+                if (result != LazyDFA.GAVE_UP) {
+                    assertEquals(expected, result, "starved " + pattern + " on " + input);
+                }
+            }
+            compared++;
+        }
+        assertTrue(compared > 150, "only " + compared + " patterns fit a dense DFA");
+    }
+
+    @Test
+    void starvedLazyDfaGivesUp() {
+        NFA nfa = new RegexEngine("(a|b)*a(a|b){6}").parts().nfa;
+        assertNotEquals(LazyDFA.GAVE_UP, new LazyDFA(nfa).matches("ab".repeat(200)));
+        assertEquals(LazyDFA.GAVE_UP, new LazyDFA(nfa, 600).matches("abbabaabbbaaabbaababab".repeat(20)));
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,54 @@
+package lite_regex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+class InputViewsTest {
+
+    // Whether the referent is collected once nothing else holds it
+    private static boolean collected(WeakReference<?> reference) throws InterruptedException {
+        for (int i = 0; i < 20 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        return reference.get() == null;
+    }
+
+    @Test
+    void clearEmptiesEveryView() {
+        InputViews views = new InputViews();
+        CharSequence chars = views.chars("abc".toCharArray(), 1, 2);
+        CharSequence bytes = views.bytes(new byte[] {'a', 'b'}, 0, 2);
+        CharSequence buffer = views.bytes(ByteBuffer.wrap(new byte[] {'a'}));
+        assertEquals("bc", chars.toString());
+        views.clear();
+        assertEquals(0, chars.length());
+        assertEquals(0, bytes.length());
+        assertEquals(0, buffer.length());
+    }
+
+    @Test
+    void matchedArraysAreNotKeptAlive() throws InterruptedException {
+        RegexEngine engine = new RegexEngine("a+b");
+        char[] chars = "aaab".toCharArray();
+        byte[] bytes = {'a', 'b'};
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        assertTrue(engine.matches(chars, 0, chars.length));
+        assertTrue(engine.matches(bytes, 0, bytes.length));
+        assertFalse(engine.matches(buffer));
+        WeakReference<char[]> charsReference = new WeakReference<>(chars);
+        WeakReference<byte[]> bytesReference = new WeakReference<>(bytes);
+        WeakReference<ByteBuffer> bufferReference = new WeakReference<>(buffer);
+        chars = null;
+        bytes = null;
+        buffer = null;
+        assertTrue(collected(charsReference));
+        assertTrue(collected(bytesReference));
+        assertTrue(collected(bufferReference));
+    }
+}
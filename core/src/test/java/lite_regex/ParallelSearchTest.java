@@ -0,0 +1,133 @@
+package lite_regex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ParallelSearchTest {
+    // Chunks are at least this big, so a file of a few of them is cut exactly here
+    private static final int MB = 1 << 20;
+
+    private static ForkJoinPool pool;
+
+    @TempDir
+    static Path dir;
+    private static Path file;
+    private static String text;
+
+    @BeforeAll
+    static void writeFile() throws IOException {
+        pool = new ForkJoinPool(2);
+        char[] chars = new char[4 * MB + 100];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = i % 64 == 63 ? '\n' : '.';
+        }
+        // Matches ending right at, starting right at and running across
+        // each chunk boundary, where the next chunk alone would see a later
+        // or shorter match
+        put(chars, MB - 4, "xaaa");
+        put(chars, MB, "aaay");
+        put(chars, 2 * MB - 2, "xa");
+        put(chars, 2 * MB, "ay");
+        put(chars, 2 * MB + 10, "xaaaay");
+        put(chars, 3 * MB - 1, "xaay");
+        put(chars, 3 * MB + 3, "aaay");
+        put(chars, chars.length - 5, "xaay");
+        text = new String(chars);
+        file = dir.resolve("big.txt");
+        Files.write(file, text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @AfterAll
+    static void shutDown() {
+        pool.shutdown();
+    }
+
+    private static void put(char[] chars, int at, String s) {
+        s.getChars(0, s.length(), chars, at);
+    }
+
+    private static void assertSameMatches(String pattern) throws IOException {
+        RegexEngine engine = new RegexEngine(pattern);
+        List<String> expected = new ArrayList<>();
+        for (RegexMatch match : engine.findAll(text)) {
+            expected.add(match.start() + "," + match.end());
+        }
+        List<String> actual = new ArrayList<>();
+        long found = ParallelSearch.findAll(engine, file, pool, (start, end) -> actual.add(start + "," + end));
+        assertEquals(expected, actual, pattern);
+        assertEquals(expected.size(), found, pattern);
+    }
+
+    @Test
+    void findAllStitchesMatchesAcrossChunks() throws IOException {
+        assertSameMatches("x?a+y");
+        assertSameMatches("a+y?");
+        assertSameMatches("xa{1,3}");
+        // Unbounded: each chunk's view runs to the end of the file
+        assertSameMatches("x[^\n]*y");
+    }
+
+    @Test
+    void findAllEmptyMatches() throws IOException {
+        // One at every position, so only the non-empty ones are compared
+        RegexEngine engine = new RegexEngine("a*");
+        List<String> expected = new ArrayList<>();
+        long expectedCount = 0;
+        for (RegexMatch match : engine.findAll(text)) {
+            if (match.end() > match.start()) {
+                expected.add(match.start() + "," + match.end());
+            }
+            expectedCount++;
+        }
+        List<String> actual = new ArrayList<>();
+        long found = ParallelSearch.findAll(engine, file, pool, (start, end) -> {
+            if (end > start) {
+                actual.add(start + "," + end);
+            }
+        });
+        assertEquals(expected, actual);
+        assertEquals(expectedCount, found);
+    }
+
+    @Test
+    void grepReportsEachLineOnce() throws IOException {
+        RegexEngine engine = new RegexEngine("x?a+y");
+        List<String> expected = new ArrayList<>();
+        RegexGrep.scan(engine, file, (number, offset, line) -> expected.add(number + ":" + offset + ":" + line));
+        List<String> actual = new ArrayList<>();
+        long matched = ParallelSearch.grep(engine, file, pool,
+                (number, offset, line) -> actual.add(number + ":" + offset + ":" + line));
+        assertEquals(expected, actual);
+        assertEquals(expected.size(), matched);
+        // Each boundary's line, and the last one
+        assertEquals(4, expected.size(), expected.toString());
+    }
+
+    @Test
+    void smallAndEmptyFiles() throws IOException {
+        Path small = dir.resolve("small.txt");
+        Files.write(small, "ab\nxaay\n".getBytes(StandardCharsets.US_ASCII));
+        List<String> actual = new ArrayList<>();
+        ParallelSearch.findAll(new RegexEngine("a+y"), small, pool, (start, end) -> actual.add(start + "," + end));
+        assertEquals(Arrays.asList("4,7"), actual);
+
+        Path empty = dir.resolve("empty.txt");
+        Files.write(empty, new byte[0]);
+        actual.clear();
+        ParallelSearch.findAll(new RegexEngine("a*"), empty, pool, (start, end) -> actual.add(start + "," + end));
+        assertEquals(Arrays.asList("0,0"), actual);
+        assertEquals(0, ParallelSearch.grep(new RegexEngine("a"), empty, pool, (number, offset, line) -> { }));
+    }
+}
@@ -0,0 +1,121 @@
+package lite_regex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PatternArchiveTest {
+    // Literals, a dense DFA, a counted repetition, groups, and one too big for a dense DFA
+    private static final String[] PATTERNS = {
+        "foo|bar|foobar", "[a-c]+x?", "(?:ab|cd){2,6000}", "(a+)(b|c)*", "(a|b)*a(a|b){12}", "é|€+",
+    };
+    private static final String[] INPUTS = {
+        "", "foo", "foobar", "abcx", "ab".repeat(3000), "cdab", "aabcb", "ab" + "a".repeat(12), "€€", "zzfoobarzz",
+    };
+
+    private static List<RegexEngine> engines() {
+        List<RegexEngine> engines = new ArrayList<>();
+        for (String pattern : PATTERNS) {
+            engines.add(new RegexEngine(pattern));
+        }
+        return engines;
+    }
+
+    private static byte[] archive(List<RegexEngine> engines) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PatternArchive.write(engines, out);
+        return out.toByteArray();
+    }
+
+    private static void assertSameEngine(RegexEngine expected, RegexEngine actual) {
+        String pattern = expected.getPattern();
+        assertEquals(pattern, actual.getPattern());
+        assertEquals(expected.groupCount(), actual.groupCount(), pattern);
+        assertEquals(expected.getMinLength(), actual.getMinLength(), pattern);
+        assertEquals(expected.getMaxLength(), actual.getMaxLength(), pattern);
+        assertEquals(expected.parts().literals != null, actual.parts().literals != null, pattern);
+        assertEquals(expected.parts().denseDfa != null, actual.parts().denseDfa != null, pattern);
+        for (String input : INPUTS) {
+            assertEquals(expected.matches(input), actual.matches(input), pattern + " on " + input);
+            RegexMatch want = expected.find(input);
+            RegexMatch got = actual.find(input);
+            if (want == null) {
+                assertNull(got, pattern + " in " + input);
+            } else {
+                assertNotNull(got, pattern + " in " + input);
+                for (int g = 0; g <= want.groupCount(); g++) {
+                    assertEquals(want.start(g), got.start(g), pattern + " in " + input);
+                    assertEquals(want.end(g), got.end(g), pattern + " in " + input);
+                }
+            }
+        }
+    }
+
+    @Test
+    void fileRoundTrip(@TempDir Path dir) throws IOException {
+        List<RegexEngine> engines = engines();
+        Path file = dir.resolve("patterns.lrxa");
+        PatternArchive.write(engines, file);
+        PatternArchive archive = PatternArchive.open(file);
+        assertEquals(PATTERNS.length, archive.size());
+        // Out of order, to check each record is found by its own offset
+        for (int i = PATTERNS.length - 1; i >= 0; i--) {
+            assertEquals(PATTERNS[i], archive.getPattern(i));
+            assertSameEngine(engines.get(i), archive.load(i));
+        }
+        assertNotNull(engines.get(0).parts().literals);
+        assertNotNull(engines.get(1).parts().denseDfa);
+    }
+
+    @Test
+    void bufferRoundTripFromItsPosition() throws IOException {
+        byte[] bytes = archive(engines());
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 5);
+        buffer.position(5);
+        buffer.put(bytes);
+        buffer.position(5);
+        List<RegexEngine> loaded = PatternArchive.read(buffer).loadAll();
+        for (int i = 0; i < PATTERNS.length; i++) {
+            assertSameEngine(engines().get(i), loaded.get(i));
+        }
+    }
+
+    @Test
+    void emptyArchive() throws IOException {
+        assertEquals(0, PatternArchive.read(ByteBuffer.wrap(archive(List.of()))).size());
+    }
+
+    @Test
+    void otherFormatVersionIsRejected() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(archive(engines()));
+        buffer.putInt(4, PatternArchive.FORMAT_VERSION - 1);
+        IOException e = assertThrows(IOException.class, () -> PatternArchive.read(buffer));
+        assertEquals("Pattern archive has format version " + (PatternArchive.FORMAT_VERSION - 1)
+                + ", expected " + PatternArchive.FORMAT_VERSION, e.getMessage());
+    }
+
+    @Test
+    void notAnArchiveIsRejected() throws IOException {
+        byte[] bytes = archive(engines());
+        bytes[0] ^= 1;
+        assertThrows(IOException.class, () -> PatternArchive.read(ByteBuffer.wrap(bytes)));
+        assertThrows(IOException.class, () -> PatternArchive.read(ByteBuffer.wrap(new byte[5])));
+    }
+
+    @Test
+    void indexOutsideTheArchive() throws IOException {
+        PatternArchive archive = PatternArchive.read(ByteBuffer.wrap(archive(engines())));
+        assertThrows(IndexOutOfBoundsException.class, () -> archive.load(PATTERNS.length));
+        assertThrows(IndexOutOfBoundsException.class, () -> archive.getPattern(-1));
+    }
+}
@@ -0,0 +1,52 @@
+package lite_regex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class RegexCacheTest {
+
+    // Distinct letter-only patterns: a, b, ..., z, ba, bb, ...
+    private static String pattern(int i) {
+        StringBuilder sb = new StringBuilder();
+        do {
+            sb.append((char) ('a' + i % 26));
+            i /= 26;
+        } while (i > 0);
+        return sb.reverse().toString();
+    }
+
+    // Looks up count distinct patterns, checking the cap after each one
+    private static void fill(RegexCache cache, int count, int maxEntries) {
+        for (int i = 0; i < count; i++) {
+            cache.get(pattern(i));
+            assertTrue(cache.size() <= maxEntries, "size " + cache.size() + " after " + (i + 1) + " patterns");
+        }
+    }
+
+    @Test
+    void capBelowStripeCountIsHonored() {
+        RegexCache cache = new RegexCache(4, RegexCache.DEFAULT_MAX_BYTES);
+        fill(cache, 200, 4);
+        assertEquals(200 - cache.size(), cache.getEvictionCount());
+    }
+
+    @Test
+    void capOfOneKeepsOnlyTheNewest() {
+        RegexCache cache = new RegexCache(1, RegexCache.DEFAULT_MAX_BYTES);
+        fill(cache, 50, 1);
+        assertEquals(1, cache.size());
+        RegexEngine last = cache.get(pattern(49));
+        assertSame(last, cache.get(pattern(49)));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void capThatIsNotAMultipleOfTheStripeCountIsHonored() {
+        RegexCache cache = new RegexCache(20, RegexCache.DEFAULT_MAX_BYTES);
+        fill(cache, 500, 20);
+        assertEquals(20, cache.size());
+    }
+}
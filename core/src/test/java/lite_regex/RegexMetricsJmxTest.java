@@ -0,0 +1,33 @@
+package lite_regex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.Test;
+
+class RegexMetricsJmxTest {
+
+    @Test
+    void registerPublishesTheEnginesMetrics() throws Exception {
+        RegexEngine engine = new RegexEngine("jmx\"test*");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(RegexMetricsJmx.register(engine));
+        try {
+            assertEquals(RegexMetricsJmx.nameOf(engine), name.getCanonicalName());
+            assertTrue(server.isRegistered(name));
+            assertEquals(engine.getPattern(), server.getAttribute(name, "Pattern"));
+            // One MXBean per pattern
+            assertThrows(IllegalStateException.class, () -> RegexMetricsJmx.register(new RegexEngine(engine.getPattern())));
+        } finally {
+            RegexMetricsJmx.unregister(engine);
+        }
+        assertFalse(server.isRegistered(name));
+        // Nothing to do the second time
+        RegexMetricsJmx.unregister(engine);
+    }
+}
@@ -0,0 +1,135 @@
+package lite_regex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class StreamMatcherTest {
+
+    private static List<String> expected(RegexEngine engine, String text) {
+        List<String> spans = new ArrayList<>();
+        for (RegexMatch match : engine.findAll(text)) {
+            spans.add(match.start() + "," + match.end());
+        }
+        return spans;
+    }
+
+    // Feeds text in chunks ending at the given offsets
+    private static List<String> streamed(RegexEngine engine, String text, int... cuts) {
+        List<String> spans = new ArrayList<>();
+        StreamMatcher matcher = engine.streamMatcher((start, end) -> spans.add(start + "," + end));
+        int from = 0;
+        for (int cut : cuts) {
+            matcher.feed(text.substring(from, cut));
+            from = cut;
+        }
+        matcher.feed(text.substring(from));
+        matcher.finish();
+        return spans;
+    }
+
+    private static List<String> streamedBytes(RegexEngine engine, byte[] bytes, int... cuts) {
+        List<String> spans = new ArrayList<>();
+        StreamMatcher matcher = engine.streamMatcher((start, end) -> spans.add(start + "," + end));
+        int from = 0;
+        for (int cut : cuts) {
+            matcher.feed(ByteBuffer.wrap(bytes, from, cut - from));
+            from = cut;
+        }
+        matcher.feed(ByteBuffer.wrap(bytes, from, bytes.length - from));
+        matcher.finish();
+        return spans;
+    }
+
+    @Test
+    void matchSpanningChunksIsReportedOnce() {
+        RegexEngine engine = new RegexEngine("ab+c");
+        String text = "xxabbbbcyabc";
+        for (int cut = 0; cut <= text.length(); cut++) {
+            assertEquals(List.of("2,8", "9,12"), streamed(engine, text, cut), "cut at " + cut);
+        }
+        assertEquals(List.of("2,8", "9,12"), streamed(engine, text, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11));
+    }
+
+    @Test
+    void pendingMatchWaitsForTheNextChunk() {
+        // a+ could still grow until a char that is not 'a' arrives
+        List<String> spans = new ArrayList<>();
+        StreamMatcher matcher = new RegexEngine("a+").streamMatcher((start, end) -> spans.add(start + "," + end));
+        matcher.feed("baa");
+        assertEquals(List.of(), spans);
+        matcher.feed("ab");
+        assertEquals(List.of("1,4"), spans);
+        matcher.feed("aa");
+        matcher.finish();
+        assertEquals(List.of("1,4", "5,7"), spans);
+    }
+
+    @Test
+    void failedLongerCandidateIsReplayed() {
+        // The shorter match ends inside chars a later chunk proves useless,
+        // so the search restarts within them
+        RegexEngine engine = new RegexEngine("ab|abcd|cx");
+        assertEquals(List.of("0,2", "2,4"), streamed(engine, "abcx", 3));
+        assertEquals(expected(engine, "abcabcdabcx"), streamed(engine, "abcabcdabcx", 2, 5, 9));
+    }
+
+    @Test
+    void agreesWithFindAllForRandomChunks() {
+        Random random = new Random(3);
+        for (String pattern : new String[] {"a+b", "(ab|a)(bc|c)?", "x.*y", "[ab]{2,4}", "a|ab|abc", "b*"}) {
+            RegexEngine engine = new RegexEngine(pattern);
+            for (int round = 0; round < 100; round++) {
+                StringBuilder text = new StringBuilder();
+                for (int i = random.nextInt(40); i > 0; i--) {
+                    text.append("abcxy".charAt(random.nextInt(5)));
+                }
+                int[] cuts = random.ints(random.nextInt(5), 0, text.length() + 1).sorted().toArray();
+                assertEquals(expected(engine, text.toString()), streamed(engine, text.toString(), cuts),
+                        pattern + " on " + text);
+            }
+        }
+    }
+
+    @Test
+    void utf8SequenceSplitBetweenBuffers() {
+        RegexEngine engine = new RegexEngine("é+|€");
+        String text = "aééb€c😀é";
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        List<String> expected = expected(engine, text);
+        assertEquals(List.of("1,3", "4,5", "8,9"), expected);
+        // Every cut, including those inside the 2, 3 and 4 byte sequences
+        for (int cut = 0; cut <= bytes.length; cut++) {
+            assertEquals(expected, streamedBytes(engine, bytes, cut), "cut at byte " + cut);
+        }
+        int[] everyByte = new int[bytes.length - 1];
+        for (int i = 0; i < everyByte.length; i++) {
+            everyByte[i] = i + 1;
+        }
+        assertEquals(expected, streamedBytes(engine, bytes, everyByte));
+    }
+
+    @Test
+    void scanReadsTheWholeStreamAndCanBeReused() throws IOException {
+        RegexEngine engine = new RegexEngine("ab*");
+        // Longer than the matcher's byte buffer, with a multi-byte char across its edge
+        String text = "x".repeat(8191) + "é" + "abbb".repeat(3000);
+        List<String> spans = new ArrayList<>();
+        StreamMatcher matcher = engine.streamMatcher((start, end) -> spans.add(start + "," + end));
+        matcher.scan(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(expected(engine, text), spans);
+        assertEquals(0, matcher.position());
+
+        spans.clear();
+        matcher.feed("zab");
+        matcher.finish();
+        assertEquals(List.of("1,3"), spans);
+    }
+}
@@ -0,0 +1,154 @@
+package lite_regex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+class Utf8Test {
+    // One to four UTF-8 bytes each
+    private static final String[] CHARS = {"a", "b", "é", "ß", "€", "中", "😀", "🙂"};
+
+    private static boolean matchesBytes(RegexEngine engine, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        boolean matched = engine.matches(bytes, 0, bytes.length);
+        assertEquals(matched, engine.matches(ByteBuffer.wrap(bytes)), engine.getPattern() + " on " + text);
+        return matched;
+    }
+
+    private static int utf8Offset(String text, int charOffset) {
+        return text.substring(0, charOffset).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void assertSameFind(RegexEngine engine, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        RegexMatch chars = engine.find(text);
+        RegexMatch utf8 = engine.bytes().find(new ByteArraySequence(bytes, 0, bytes.length));
+        String message = engine.getPattern() + " in " + text;
+        if (chars == null) {
+            assertNull(utf8, message);
+        } else {
+            assertNotNull(utf8, message);
+            assertEquals(utf8Offset(text, chars.start()), utf8.start(), message);
+            assertEquals(utf8Offset(text, chars.end()), utf8.end(), message);
+        }
+    }
+
+    @Test
+    void byteAutomatonAgreesWithChars() {
+        Random random = new Random(23);
+        String[] atoms = {"a", "é", "€", "😀", ".", "[aé€]", "[^a€]", "[a-z]", "[^ß-中]", "\\w", "(?:é|😀)", "[a😀]", "[^é🙂]", "[€-😀]"};
+        String[] quantifiers = {"", "", "*", "+", "?", "{2}", "{1,3}"};
+        for (int round = 0; round < 300; round++) {
+            StringBuilder pattern = new StringBuilder();
+            for (int i = 1 + random.nextInt(3); i > 0; i--) {
+                pattern.append(atoms[random.nextInt(atoms.length)]).append(quantifiers[random.nextInt(quantifiers.length)]);
+            }
+            RegexEngine engine = new RegexEngine(pattern.toString());
+            for (int i = 0; i < 30; i++) {
+                StringBuilder text = new StringBuilder();
+                for (int k = random.nextInt(6); k > 0; k--) {
+                    text.append(CHARS[random.nextInt(CHARS.length)]);
+                }
+                String input = text.toString();
+                assertEquals(engine.matches(input), matchesBytes(engine, input), pattern + " on " + input);
+                assertSameFind(engine, "b" + input + "b");
+            }
+        }
+    }
+
+    @Test
+    void dotAndNegatedClassesTakeWholeCodePoints() {
+        for (String pattern : new String[] {".", "[^a]", "[^€]"}) {
+            RegexEngine engine = new RegexEngine(pattern);
+            for (String input : new String[] {"é", "中", "😀"}) {
+                assertTrue(engine.matches(input), pattern + " on " + input);
+                assertTrue(matchesBytes(engine, input), pattern + " on " + input);
+            }
+            assertFalse(engine.matches("😀😀"), pattern);
+            assertFalse(matchesBytes(engine, "😀😀"), pattern);
+        }
+        assertFalse(matchesBytes(new RegexEngine("[^€]"), "€"));
+    }
+
+    @Test
+    void quantifierRepeatsASupplementaryLiteral() {
+        RegexEngine engine = new RegexEngine("😀{2}");
+        assertTrue(engine.matches("😀😀"));
+        assertTrue(matchesBytes(engine, "😀😀"));
+        assertFalse(engine.matches("😀\uDE00"));
+    }
+
+    @Test
+    void supplementaryClassMembersAreWholeCodePoints() {
+        RegexEngine engine = new RegexEngine("[a😀]+");
+        assertTrue(engine.matches("a😀a"));
+        assertTrue(matchesBytes(engine, "a😀a"));
+        // Neither half of the pair is a member on its own
+        assertFalse(engine.matches("\uD83D"));
+        assertFalse(engine.matches("\uDE00"));
+        assertFalse(engine.matches("a\uD83D\uDE01"));
+        assertFalse(matchesBytes(engine, "🙂"));
+        RegexMatch match = engine.find("xx😀ay");
+        assertEquals(2, match.start());
+        assertEquals(5, match.end());
+
+        RegexEngine negated = new RegexEngine("[^a😀]");
+        assertFalse(negated.matches("😀"));
+        assertFalse(matchesBytes(negated, "😀"));
+        assertTrue(negated.matches("🙂"));
+        assertTrue(matchesBytes(negated, "🙂"));
+        assertFalse(negated.matches("🙂🙂"));
+    }
+
+    @Test
+    void supplementaryClassRangesAgreeWithJava() {
+        // Ranges within one high surrogate, across several, from the BMP,
+        // and ending at the last code point
+        String[] patterns = {"[😀-🙏]", "[^😀-🙏]", "[𐀀-😀]", "[^𐀁-𝟿]", "[x-😀]", "[^\uE000-𐌀]", "[😀𐀀-𐀅\uFFFF-\uFFFF]",
+                "[" + new String(Character.toChars(0x10FFF0)) + "-" + new String(Character.toChars(Character.MAX_CODE_POINT)) + "]"};
+        int[] probes = {'a', 'x', 'y', 0xD7FF, 0xE000, 0xFFFF, 0x10000, 0x10001, 0x10005, 0x10006, 0x103FF, 0x10400,
+                0x1D7FF, 0x1D800, 0x1F5FF, 0x1F600, 0x1F601, 0x1F64F, 0x1F650, 0x10FFEF, 0x10FFF0, Character.MAX_CODE_POINT};
+        for (String pattern : patterns) {
+            RegexEngine engine = new RegexEngine(pattern);
+            Pattern java = Pattern.compile(pattern);
+            for (int codePoint : probes) {
+                String input = new String(Character.toChars(codePoint));
+                boolean expected = java.matcher(input).matches();
+                String message = pattern + " on U+" + Integer.toHexString(codePoint);
+                assertEquals(expected, engine.matches(input), message);
+                assertEquals(expected, matchesBytes(engine, input), message);
+            }
+        }
+    }
+
+    @Test
+    void invalidUtf8MatchesNothing() {
+        RegexEngine engine = new RegexEngine("a.b");
+        assertTrue(engine.matches(new byte[] {'a', (byte) 0xC3, (byte) 0xA9, 'b'}, 0, 4));
+        // A lone continuation byte, a truncated sequence, an overlong '/' and
+        // an encoded surrogate
+        assertFalse(engine.matches(new byte[] {'a', (byte) 0xA9, 'b'}, 0, 3));
+        assertFalse(engine.matches(new byte[] {'a', (byte) 0xE2, (byte) 0x82, 'b'}, 0, 4));
+        assertFalse(engine.matches(new byte[] {'a', (byte) 0xC0, (byte) 0xAF, 'b'}, 0, 4));
+        assertFalse(engine.matches(new byte[] {'a', (byte) 0xED, (byte) 0xA0, (byte) 0x80, 'b'}, 0, 5));
+    }
+
+    @Test
+    void regionOfAnArray() {
+        byte[] bytes = "xxé€yy".getBytes(StandardCharsets.UTF_8);
+        RegexEngine engine = new RegexEngine("é€");
+        assertTrue(engine.matches(bytes, 2, 5));
+        assertFalse(engine.matches(bytes, 2, 4));
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 2, 5);
+        assertTrue(engine.matches(buffer));
+        assertEquals(2, buffer.position());
+    }
+}
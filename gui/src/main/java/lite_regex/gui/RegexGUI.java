@@ -1,4 +1,8 @@
-package lite_regex;
+package lite_regex.gui;
+
+import lite_regex.PatternExplainer;
+import lite_regex.RegexEngine;
+import lite_regex.RegexException;
 
 import javax.swing.*;
 import java.awt.*;
@@ -56,7 +60,7 @@ public class RegexGUI {
                 String input = inputText.getText();
 
                 try {
-                    RegexEngine engine = new RegexEngine(pattern);
+                    RegexEngine engine = RegexEngine.compile(pattern);
                     boolean matches = engine.matches(input);
                     resultLabel.setText("Match: " + matches);
                     resultLabel.setForeground(matches ? Color.GREEN : Color.RED);
@@ -0,0 +1,7 @@
+/**
+ * The Swing front end, kept apart so the engine does not pull in AWT.
+ */
+module lite_regex.gui {
+    requires lite_regex;
+    requires java.desktop;
+}
@@ -1,10 +0,0 @@
-/**
- * 
- */
-/**
- * 
- */
-module lite_regex {
-requires java.desktop;
-}
-